@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@link ForegroundAppSource} fed by {@link ForegroundAccessibilityService}. Nothing runs between
+ * app switches. When the service goes away it calls back into {@link WidgetService}, which falls
+ * back to {@link UsageStatsForegroundSource}.
+ */
+final class AccessibilityForegroundSource implements ForegroundAppSource {
+    @Override
+    public void start(@NonNull Listener listener) {
+        ForegroundAccessibilityService.setListener(listener);
+    }
+
+    @Override
+    public void stop() {
+        ForegroundAccessibilityService.setListener(null);
+    }
+}
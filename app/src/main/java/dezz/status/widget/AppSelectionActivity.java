@@ -28,8 +28,11 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
 import androidx.annotation.NonNull;
@@ -49,11 +52,18 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import dezz.status.widget.databinding.ActivityAppSelectionBinding;
 
 public class AppSelectionActivity extends AppCompatActivity {
     private static final String TAG = "AppSelectionActivity";
+    /**
+     * Hand-written rule: a package, a package prefix ending in {@code *} (or {@code *} alone), or
+     * {@code package/activity}. See {@link HideIndex} for how they match.
+     */
+    private static final Pattern RULE = Pattern.compile(
+            "\\*|[A-Za-z0-9_.]+\\*?|[A-Za-z0-9_.]+/[A-Za-z0-9_.$]+");
 
     /** SharedPreferences key (StringSet) of the brick-specific or global hide list to edit. */
     public static final String EXTRA_PREF_KEY = "prefKey";
@@ -87,6 +97,7 @@ public class AppSelectionActivity extends AppCompatActivity {
             });
 
             binding.backButton.setOnClickListener(v -> finish());
+            binding.addRuleButton.setOnClickListener(v -> showAddRuleDialog());
 
             prefs = new Preferences(this);
             String prefKey = getIntent().getStringExtra(EXTRA_PREF_KEY);
@@ -138,6 +149,36 @@ public class AppSelectionActivity extends AppCompatActivity {
         }
     }
 
+    private void showAddRuleDialog() {
+        EditText input = new EditText(this);
+        input.setHint(R.string.hide_rule_hint);
+        input.setSingleLine(true);
+        int pad = getResources().getDimensionPixelSize(R.dimen.optionsMargin);
+        FrameLayout frame = new FrameLayout(this);
+        FrameLayout.LayoutParams lp = new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.WRAP_CONTENT);
+        lp.setMargins(pad, pad / 2, pad, 0);
+        frame.addView(input, lp);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.hide_rule_add)
+                .setMessage(R.string.hide_rule_message)
+                .setView(frame)
+                .setNegativeButton(android.R.string.cancel, null)
+                .setPositiveButton(R.string.hide_rule_add_button, (d, w) -> {
+                    String rule = input.getText().toString().trim();
+                    if (!RULE.matcher(rule).matches()) {
+                        Toast.makeText(this, R.string.hide_rule_invalid, Toast.LENGTH_LONG).show();
+                        return;
+                    }
+                    if (selected.add(rule)) {
+                        apps.add(0, new AppEntry(rule, rule, null));
+                        adapter.notifyItemInserted(0);
+                        binding.appList.scrollToPosition(0);
+                    }
+                })
+                .show();
+    }
+
     private static String describeThrowable(@NonNull Throwable t) {
         Throwable root = t;
         while (root.getCause() != null && root.getCause() != root) {
@@ -244,6 +285,20 @@ public class AppSelectionActivity extends AppCompatActivity {
         @Override
         protected void onPostExecute(List<AppEntry> result) {
             apps.clear();
+            // Selected entries that aren't a listed app — hand-written rules, uninstalled apps —
+            // go on top so they can still be unticked.
+            HashSet<String> listed = new HashSet<>();
+            for (AppEntry entry : result) {
+                listed.add(entry.packageName);
+            }
+            List<String> others = new ArrayList<>();
+            for (String rule : selected) {
+                if (!listed.contains(rule)) others.add(rule);
+            }
+            Collections.sort(others);
+            for (String rule : others) {
+                apps.add(new AppEntry(rule, rule, null));
+            }
             apps.addAll(result);
             adapter.notifyDataSetChanged();
             binding.appSelectionProgress.setVisibility(View.GONE);
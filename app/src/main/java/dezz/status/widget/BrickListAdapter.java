@@ -20,6 +20,7 @@ package dezz.status.widget;
 import android.annotation.SuppressLint;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.os.Bundle;
 import android.provider.Settings;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
@@ -56,9 +57,23 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
         void onOrderChanged();
     }
 
+    /** Asks the host to pick a font file; it reports back through {@link #onFontImported}. */
+    public interface FontImportRequester {
+        void requestFontImport();
+    }
+
+    private static final String STATE_FONT_IMPORT_TARGET = "fontImportTarget";
+
     private final AppCompatActivity activity;
     private final Preferences prefs;
     private final OrderChangedListener orderChangedListener;
+    private final FontImportRequester fontImportRequester;
+    /**
+     * Brick whose dropdown started the pending import. Kept in the saved instance state: the
+     * picker is a separate activity, so ours may be recreated before the result comes back.
+     */
+    @androidx.annotation.Nullable
+    private BrickType fontImportTarget;
     private final List<BrickType> bricks;
     private ItemTouchHelper itemTouchHelper;
     /** Currently expanded brick — only one panel is open at a time. {@code null} = all collapsed. */
@@ -66,14 +81,41 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
     private BrickType expandedType;
 
     public BrickListAdapter(AppCompatActivity activity, Preferences prefs,
-                            OrderChangedListener orderChangedListener) {
+                            OrderChangedListener orderChangedListener,
+                            FontImportRequester fontImportRequester) {
         this.activity = activity;
         this.prefs = prefs;
         this.orderChangedListener = orderChangedListener;
+        this.fontImportRequester = fontImportRequester;
         this.bricks = new ArrayList<>(BrickType.parseOrder(prefs.brickOrder.get()));
         setHasStableIds(true);
     }
 
+    /** Selects a freshly imported font family for the brick that asked for it. */
+    public void onFontImported(String familyKey) {
+        Preferences.TextBrickPrefs target =
+                fontImportTarget != null ? prefs.textBrickPrefs(fontImportTarget) : null;
+        fontImportTarget = null;
+        if (target == null) return;
+        target.fontFamily.set(familyKey);
+        notifyService(target.fontFamily.key);
+        notifyDataSetChanged();
+    }
+
+    public void saveInstanceState(Bundle outState) {
+        if (fontImportTarget != null) {
+            outState.putString(STATE_FONT_IMPORT_TARGET, fontImportTarget.name());
+        }
+    }
+
+    public void restoreInstanceState(@Nullable Bundle savedState) {
+        if (savedState == null) return;
+        String target = savedState.getString(STATE_FONT_IMPORT_TARGET);
+        if (target != null) {
+            fontImportTarget = BrickType.fromName(target);
+        }
+    }
+
     public void attachItemTouchHelper(ItemTouchHelper helper) {
         this.itemTouchHelper = helper;
     }
@@ -112,7 +154,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
 
     private void persist() {
         prefs.brickOrder.set(BrickType.serializeOrder(bricks));
-        notifyService();
+        notifyService(prefs.brickOrder.key);
         if (orderChangedListener != null) {
             orderChangedListener.onOrderChanged();
         }
@@ -127,9 +169,10 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
         notifyDataSetChanged();
     }
 
-    private void notifyService() {
+    /** @param key the changed pref's key, or {@code null} when several prefs changed at once. */
+    private void notifyService(@Nullable String key) {
         if (WidgetService.isRunning()) {
-            WidgetService.getInstance().applyPreferences();
+            WidgetService.getInstance().applyPreference(key);
         }
     }
 
@@ -206,6 +249,8 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
         final com.google.android.material.textfield.TextInputLayout brickStatusAlignmentLayout;
         final MaterialAutoCompleteTextView brickStatusAlignmentDropdown;
         final Slider brickAdjustYSlider;
+        final LinearLayout brickTimeBlock;
+        final MaterialSwitch brickTimeShowSeconds;
         final LinearLayout brickDateBlock;
         final MaterialSwitch brickDateShowDate;
         final MaterialSwitch brickDateShowDayOfWeek;
@@ -217,11 +262,15 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
         final MaterialAutoCompleteTextView brickDateAlignmentDropdown;
         final LinearLayout brickGpsBlock;
         final MaterialSwitch brickGpsShowSatelliteBadge;
+        final Slider brickGpsBadAfterSlider;
+        final Slider brickGpsOffAfterSlider;
+        final Slider brickGpsGoodAccuracySlider;
         final LinearLayout brickBluetoothBlock;
         final MaterialSwitch brickBluetoothShowDeviceCountBadge;
         final LinearLayout brickMediaBlock;
         final MaterialSwitch brickMediaShowSource;
         final Slider brickMediaMaxWidthSlider;
+        final Slider brickMediaMarqueeFpsSlider;
         final com.google.android.material.textfield.TextInputLayout brickMediaStatusAlignmentLayout;
         final MaterialAutoCompleteTextView brickMediaStatusAlignmentDropdown;
         final MaterialAutoCompleteTextView brickMediaAlignmentDropdown;
@@ -264,6 +313,8 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickStatusAlignmentLayout = itemView.findViewById(R.id.brickStatusAlignmentLayout);
             brickStatusAlignmentDropdown = itemView.findViewById(R.id.brickStatusAlignmentDropdown);
             brickAdjustYSlider = itemView.findViewById(R.id.brickAdjustYSlider);
+            brickTimeBlock = itemView.findViewById(R.id.brickTimeBlock);
+            brickTimeShowSeconds = itemView.findViewById(R.id.brickTimeShowSeconds);
             brickDateBlock = itemView.findViewById(R.id.brickDateBlock);
             brickDateShowDate = itemView.findViewById(R.id.brickDateShowDate);
             brickDateShowDayOfWeek = itemView.findViewById(R.id.brickDateShowDayOfWeek);
@@ -275,11 +326,15 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickDateAlignmentDropdown = itemView.findViewById(R.id.brickDateAlignmentDropdown);
             brickGpsBlock = itemView.findViewById(R.id.brickGpsBlock);
             brickGpsShowSatelliteBadge = itemView.findViewById(R.id.brickGpsShowSatelliteBadge);
+            brickGpsBadAfterSlider = itemView.findViewById(R.id.brickGpsBadAfterSlider);
+            brickGpsOffAfterSlider = itemView.findViewById(R.id.brickGpsOffAfterSlider);
+            brickGpsGoodAccuracySlider = itemView.findViewById(R.id.brickGpsGoodAccuracySlider);
             brickBluetoothBlock = itemView.findViewById(R.id.brickBluetoothBlock);
             brickBluetoothShowDeviceCountBadge = itemView.findViewById(R.id.brickBluetoothShowDeviceCountBadge);
             brickMediaBlock = itemView.findViewById(R.id.brickMediaBlock);
             brickMediaShowSource = itemView.findViewById(R.id.brickMediaShowSource);
             brickMediaMaxWidthSlider = itemView.findViewById(R.id.brickMediaMaxWidthSlider);
+            brickMediaMarqueeFpsSlider = itemView.findViewById(R.id.brickMediaMarqueeFpsSlider);
             brickMediaStatusAlignmentLayout = itemView.findViewById(R.id.brickMediaStatusAlignmentLayout);
             brickMediaStatusAlignmentDropdown = itemView.findViewById(R.id.brickMediaStatusAlignmentDropdown);
             brickMediaAlignmentDropdown = itemView.findViewById(R.id.brickMediaAlignmentDropdown);
@@ -323,6 +378,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickMarginStartSlider.clearOnChangeListeners();
             brickMarginEndSlider.clearOnChangeListeners();
             brickAdjustYSlider.clearOnChangeListeners();
+            brickTimeShowSeconds.setOnCheckedChangeListener(null);
             brickDateShowDate.setOnCheckedChangeListener(null);
             brickDateShowDayOfWeek.setOnCheckedChangeListener(null);
             brickDateShowFullName.setOnCheckedChangeListener(null);
@@ -337,14 +393,17 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
 
             switch (type) {
                 case TIME:
-                    bindTextBrick(prefs.time);
+                    bindTextBrick(type, prefs.time);
+                    showTimeBlock(true);
+                    bindTimeBlock();
                     showDateBlock(false);
                     showGpsBlock(false);
                     showBluetoothBlock(false);
                     showMediaBlock(false);
                     break;
                 case DATE:
-                    bindTextBrick(prefs.date);
+                    bindTextBrick(type, prefs.date);
+                    showTimeBlock(false);
                     showDateBlock(true);
                     bindDateBlock();
                     showGpsBlock(false);
@@ -352,7 +411,8 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
                     showMediaBlock(false);
                     break;
                 case MEDIA:
-                    bindTextBrick(prefs.media);
+                    bindTextBrick(type, prefs.media);
+                    showTimeBlock(false);
                     showDateBlock(false);
                     showGpsBlock(false);
                     showBluetoothBlock(false);
@@ -361,6 +421,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
                     break;
                 case WIFI:
                     bindIconBrick(prefs.wifi);
+                    showTimeBlock(false);
                     showDateBlock(false);
                     showGpsBlock(false);
                     showBluetoothBlock(false);
@@ -368,6 +429,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
                     break;
                 case GPS:
                     bindIconBrick(prefs.gps);
+                    showTimeBlock(false);
                     showDateBlock(false);
                     showGpsBlock(true);
                     bindGpsBlock();
@@ -376,6 +438,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
                     break;
                 case BLUETOOTH:
                     bindIconBrick(prefs.bluetooth);
+                    showTimeBlock(false);
                     showDateBlock(false);
                     showGpsBlock(false);
                     showBluetoothBlock(true);
@@ -410,7 +473,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             dropdown.setText(items[current], false);
             dropdown.setOnItemClickListener((parent, view, position, id) -> {
                 prefs.statusAlignmentFor(type).set(position);
-                notifyService();
+                notifyService(prefs.statusAlignmentFor(type).key);
             });
         }
 
@@ -436,7 +499,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickStatusAlignmentDropdown.setText(items[current], false);
             brickStatusAlignmentDropdown.setOnItemClickListener((parent, view, position, id) -> {
                 prefs.statusAlignmentFor(type).set(position);
-                notifyService();
+                notifyService(prefs.statusAlignmentFor(type).key);
             });
         }
 
@@ -451,7 +514,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
                         R.string.brick_hide_inherited_hint, brickTitleString(parent)));
                 brickHideUseOwnButton.setOnClickListener(v -> {
                     prefs.hideSourceFor(type).set("");
-                    notifyService();
+                    notifyService(prefs.hideSourceFor(type).key);
                     notifyDataSetChanged();
                 });
             } else {
@@ -475,7 +538,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             boolean keepsSpace = prefs.hideKeepsSpaceFor(type).get();
             CompoundButton.OnCheckedChangeListener keepsSpaceListener = (v, c) -> {
                 prefs.hideKeepsSpaceFor(type).set(c);
-                notifyService();
+                notifyService(prefs.hideKeepsSpaceFor(type).key);
             };
             brickHideKeepsSpaceOwnSwitch.setChecked(keepsSpace);
             brickHideKeepsSpaceOwnSwitch.setOnCheckedChangeListener(keepsSpaceListener);
@@ -506,7 +569,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
                     } else {
                         prefs.hideSourceFor(candidate).set("");
                     }
-                    notifyService();
+                    notifyService(prefs.hideSourceFor(candidate).key);
                     notifyDataSetChanged();
                 });
                 brickHideApplyToChips.addView(chip);
@@ -523,7 +586,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
                     .setNegativeButton(android.R.string.cancel, null)
                     .setPositiveButton(R.string.brick_reset_button, (d, w) -> {
                         prefs.resetBrick(type);
-                        notifyService();
+                        notifyService(null);
                         notifyDataSetChanged();
                     })
                     .show();
@@ -586,7 +649,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickExpand.setImageResource(expanded ? R.drawable.ic_expand_less : R.drawable.ic_expand_more);
         }
 
-        private void bindTextBrick(Preferences.TextBrickPrefs p) {
+        private void bindTextBrick(BrickType type, Preferences.TextBrickPrefs p) {
             brickSizeLabel.setText(R.string.brick_font_size);
             brickSizeSlider.setContentDescription(activity.getString(R.string.brick_font_size));
             brickSizeSlider.setValueFrom(10);
@@ -597,7 +660,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             bindIntSlider(brickMarginStartSlider, p.marginStart, sizeFormatter());
             bindIntSlider(brickMarginEndSlider, p.marginEnd, sizeFormatter());
             bindIntSlider(brickAdjustYSlider, p.adjustY, offsetFormatter());
-            bindFontBlock(p);
+            bindFontBlock(type, p);
         }
 
         private void bindIconBrick(Preferences.IconBrickPrefs p) {
@@ -614,13 +677,16 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickFontBlock.setVisibility(View.GONE);
         }
 
-        private void bindFontBlock(Preferences.TextBrickPrefs p) {
+        private void bindFontBlock(BrickType type, Preferences.TextBrickPrefs p) {
             brickFontBlock.setVisibility(View.VISIBLE);
 
-            String[] labels = new String[Fonts.ALL.size()];
-            for (int i = 0; i < Fonts.ALL.size(); i++) {
-                labels[i] = activity.getString(Fonts.ALL.get(i).labelRes);
+            List<Fonts.Family> families = Fonts.all(activity);
+            // Last entry is the "import" action rather than a family.
+            String[] labels = new String[families.size() + 1];
+            for (int i = 0; i < families.size(); i++) {
+                labels[i] = families.get(i).label(activity);
             }
+            labels[families.size()] = activity.getString(R.string.font_import);
             ArrayAdapter<String> adapter = new ArrayAdapter<>(
                     activity,
                     com.google.android.material.R.layout.m3_auto_complete_simple_item,
@@ -628,30 +694,48 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickFontFamilyDropdown.setAdapter(adapter);
             int currentIdx = 0;
             String currentKey = p.fontFamily.get();
-            for (int i = 0; i < Fonts.ALL.size(); i++) {
-                if (Fonts.ALL.get(i).key.equals(currentKey)) {
+            for (int i = 0; i < families.size(); i++) {
+                if (families.get(i).key.equals(currentKey)) {
                     currentIdx = i;
                     break;
                 }
             }
             brickFontFamilyDropdown.setText(labels[currentIdx], false);
             brickFontFamilyDropdown.setOnItemClickListener((parent, view, position, id) -> {
-                p.fontFamily.set(Fonts.ALL.get(position).key);
-                notifyService();
+                if (position == families.size()) {
+                    // Keep showing the selected family until the import lands.
+                    brickFontFamilyDropdown.setText(
+                            Fonts.findByKey(activity, p.fontFamily.get()).label(activity), false);
+                    fontImportTarget = type;
+                    fontImportRequester.requestFontImport();
+                    return;
+                }
+                p.fontFamily.set(families.get(position).key);
+                notifyService(p.fontFamily.key);
             });
 
             // Set checked state BEFORE attaching the listener so seeding doesn't fire it.
             brickFontBold.setChecked(p.fontBold.get());
             brickFontItalic.setChecked(p.fontItalic.get());
             brickFontStyleGroup.addOnButtonCheckedListener((group, checkedId, isChecked) -> {
+                Preferences.Bool changed;
                 if (checkedId == R.id.brickFontBold) {
-                    p.fontBold.set(isChecked);
+                    changed = p.fontBold;
                 } else if (checkedId == R.id.brickFontItalic) {
-                    p.fontItalic.set(isChecked);
+                    changed = p.fontItalic;
                 } else {
                     return;
                 }
-                notifyService();
+                changed.set(isChecked);
+                notifyService(changed.key);
+            });
+        }
+
+        private void bindTimeBlock() {
+            brickTimeShowSeconds.setChecked(prefs.time.showSeconds.get());
+            brickTimeShowSeconds.setOnCheckedChangeListener((v, c) -> {
+                prefs.time.showSeconds.set(c);
+                notifyService(prefs.time.showSeconds.key);
             });
         }
 
@@ -659,27 +743,27 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickDateShowDate.setChecked(prefs.date.showDate.get());
             brickDateShowDate.setOnCheckedChangeListener((v, c) -> {
                 prefs.date.showDate.set(c);
-                notifyService();
+                notifyService(prefs.date.showDate.key);
             });
             brickDateShowDayOfWeek.setChecked(prefs.date.showDayOfWeek.get());
             brickDateShowDayOfWeek.setOnCheckedChangeListener((v, c) -> {
                 prefs.date.showDayOfWeek.set(c);
-                notifyService();
+                notifyService(prefs.date.showDayOfWeek.key);
             });
             brickDateShowFullName.setChecked(prefs.date.showFullName.get());
             brickDateShowFullName.setOnCheckedChangeListener((v, c) -> {
                 prefs.date.showFullName.set(c);
-                notifyService();
+                notifyService(prefs.date.showFullName.key);
             });
             brickDateBeforeDayOfWeek.setChecked(prefs.date.dateBeforeDayOfWeek.get());
             brickDateBeforeDayOfWeek.setOnCheckedChangeListener((v, c) -> {
                 prefs.date.dateBeforeDayOfWeek.set(c);
-                notifyService();
+                notifyService(prefs.date.dateBeforeDayOfWeek.key);
             });
             brickDateOneLineLayout.setChecked(prefs.date.oneLineLayout.get());
             brickDateOneLineLayout.setOnCheckedChangeListener((v, c) -> {
                 prefs.date.oneLineLayout.set(c);
-                notifyService();
+                notifyService(prefs.date.oneLineLayout.key);
             });
 
             String[] alignments = activity.getResources().getStringArray(R.array.calendar_alignment_types);
@@ -692,7 +776,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickDateAlignmentDropdown.setText(alignments[currentAlignment], false);
             brickDateAlignmentDropdown.setOnItemClickListener((parent, view, position, id) -> {
                 prefs.date.alignment.set(position);
-                notifyService();
+                notifyService(prefs.date.alignment.key);
             });
 
             bindInBlockStatusAlignment(BrickType.DATE,
@@ -703,15 +787,21 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickGpsShowSatelliteBadge.setChecked(prefs.gps.showSatelliteBadge.get());
             brickGpsShowSatelliteBadge.setOnCheckedChangeListener((v, c) -> {
                 prefs.gps.showSatelliteBadge.set(c);
-                notifyService();
+                notifyService(prefs.gps.showSatelliteBadge.key);
             });
+            brickGpsBadAfterSlider.clearOnChangeListeners();
+            brickGpsOffAfterSlider.clearOnChangeListeners();
+            brickGpsGoodAccuracySlider.clearOnChangeListeners();
+            bindIntSlider(brickGpsBadAfterSlider, prefs.gps.badAfterSeconds, secondsFormatter());
+            bindIntSlider(brickGpsOffAfterSlider, prefs.gps.offAfterSeconds, secondsFormatter());
+            bindIntSlider(brickGpsGoodAccuracySlider, prefs.gps.goodAccuracyMeters, metersFormatter());
         }
 
         private void bindBluetoothBlock() {
             brickBluetoothShowDeviceCountBadge.setChecked(prefs.bluetooth.showDeviceCountBadge.get());
             brickBluetoothShowDeviceCountBadge.setOnCheckedChangeListener((v, c) -> {
                 prefs.bluetooth.showDeviceCountBadge.set(c);
-                notifyService();
+                notifyService(prefs.bluetooth.showDeviceCountBadge.key);
             });
         }
 
@@ -719,7 +809,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickMediaShowSource.setChecked(prefs.media.showSource.get());
             brickMediaShowSource.setOnCheckedChangeListener((v, c) -> {
                 prefs.media.showSource.set(c);
-                notifyService();
+                notifyService(prefs.media.showSource.key);
             });
 
             brickMediaMaxWidthSlider.clearOnChangeListeners();
@@ -729,6 +819,8 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             float upper = Math.max(brickMediaMaxWidthSlider.getValueFrom() + 1F, screenW * 0.8F);
             brickMediaMaxWidthSlider.setValueTo(upper);
             bindIntSlider(brickMediaMaxWidthSlider, prefs.media.maxWidth, sizeFormatter());
+            brickMediaMarqueeFpsSlider.clearOnChangeListeners();
+            bindIntSlider(brickMediaMarqueeFpsSlider, prefs.media.marqueeFps, fpsFormatter());
 
             String[] alignments = activity.getResources().getStringArray(R.array.calendar_alignment_types);
             ArrayAdapter<String> alignAdapter = new ArrayAdapter<>(
@@ -740,7 +832,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
             brickMediaAlignmentDropdown.setText(alignments[currentAlignment], false);
             brickMediaAlignmentDropdown.setOnItemClickListener((parent, view, position, id) -> {
                 prefs.media.alignment.set(position);
-                notifyService();
+                notifyService(prefs.media.alignment.key);
             });
 
             bindInBlockStatusAlignment(BrickType.MEDIA,
@@ -760,6 +852,10 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
         }
 
 
+        private void showTimeBlock(boolean show) {
+            brickTimeBlock.setVisibility(show ? View.VISIBLE : View.GONE);
+        }
+
         private void showDateBlock(boolean show) {
             brickDateBlock.setVisibility(show ? View.VISIBLE : View.GONE);
         }
@@ -795,9 +891,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
                 valueLabel.setText(formatter.getFormattedValue(value));
             }
             pref.set((int) value);
-            if (WidgetService.isRunning()) {
-                WidgetService.getInstance().applyPreferences();
-            }
+            notifyService(pref.key);
         });
     }
 
@@ -867,9 +961,7 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
                     int clamped = Math.max(min, Math.min(max, parsed));
                     slider.setValue(clamped);
                     pref.set(clamped);
-                    if (WidgetService.isRunning()) {
-                        WidgetService.getInstance().applyPreferences();
-                    }
+                    notifyService(pref.key);
                 })
                 .show();
     }
@@ -882,6 +974,18 @@ public class BrickListAdapter extends RecyclerView.Adapter<BrickListAdapter.Bric
         return value -> activity.getString(R.string.color_component_value_format, (int) value);
     }
 
+    private LabelFormatter fpsFormatter() {
+        return value -> activity.getString(R.string.fps_value_format, (int) value);
+    }
+
+    private LabelFormatter secondsFormatter() {
+        return value -> activity.getString(R.string.seconds_value_format, (int) value);
+    }
+
+    private LabelFormatter metersFormatter() {
+        return value -> activity.getString(R.string.meters_value_format, (int) value);
+    }
+
     private LabelFormatter offsetFormatter() {
         return value -> {
             int v = (int) value;
@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import android.graphics.Paint;
+import android.text.Layout;
+import android.text.TextPaint;
+
+import androidx.annotation.NonNull;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Time and date texts for the clock bricks, without {@code SimpleDateFormat}.
+ *
+ * The time goes into a fixed char buffer that is rewritten in place — with seconds shown it is
+ * reformatted every second, so a tick must not allocate. Day and month names come from tables
+ * built once per locale; the date string itself is only rebuilt when the day or the date options
+ * change. Output matches the patterns the widget used before ({@code "HH:mm"},
+ * {@code " EEE, d MMM "} and friends), including the padding spaces that keep the text outline
+ * from being cropped.
+ *
+ * Main thread only.
+ */
+final class ClockFormatter {
+    /** "HH:mm:ss". */
+    private static final int MAX_TIME_LENGTH = 8;
+    private static final String[] DIGITS = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+
+    private final Calendar calendar = Calendar.getInstance();
+    private final char[] time = new char[MAX_TIME_LENGTH];
+    private int timeLength;
+
+    private Locale locale;
+    private String[] shortDays;
+    private String[] fullDays;
+    private String[] shortMonths;
+    private String[] fullMonths;
+
+    private final StringBuilder dateBuilder = new StringBuilder(48);
+    private String date = "";
+    /** Day and options {@link #date} was built for; {@code -1} forces a rebuild. */
+    private long dateKey = -1;
+
+    ClockFormatter() {
+        setLocale(Locale.getDefault());
+    }
+
+    /** Rebuilds the name tables if {@code newLocale} differs from the current one. */
+    void setLocale(@NonNull Locale newLocale) {
+        if (newLocale.equals(locale)) return;
+        locale = newLocale;
+        DateFormatSymbols symbols = DateFormatSymbols.getInstance(newLocale);
+        shortDays = symbols.getShortWeekdays();
+        fullDays = symbols.getWeekdays();
+        shortMonths = symbols.getShortMonths();
+        fullMonths = symbols.getMonths();
+        dateKey = -1;
+    }
+
+    /** Picks up the current default time zone; {@code TimeZone.getDefault()} returns a copy. */
+    void setTimeZone(@NonNull TimeZone zone) {
+        calendar.setTimeZone(zone);
+        dateKey = -1;
+    }
+
+    /**
+     * Formats {@code HH:mm} or {@code HH:mm:ss} for {@code now} into {@link #timeChars()}.
+     * Returns whether the text changed since the previous call.
+     */
+    boolean formatTime(long now, boolean showSeconds) {
+        calendar.setTimeInMillis(now);
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+        int minute = calendar.get(Calendar.MINUTE);
+        int length = showSeconds ? 8 : 5;
+        boolean changed = length != timeLength;
+        changed |= put(0, (char) ('0' + hour / 10));
+        changed |= put(1, (char) ('0' + hour % 10));
+        changed |= put(2, ':');
+        changed |= put(3, (char) ('0' + minute / 10));
+        changed |= put(4, (char) ('0' + minute % 10));
+        if (showSeconds) {
+            int second = calendar.get(Calendar.SECOND);
+            changed |= put(5, ':');
+            changed |= put(6, (char) ('0' + second / 10));
+            changed |= put(7, (char) ('0' + second % 10));
+        }
+        timeLength = length;
+        return changed;
+    }
+
+    private boolean put(int index, char c) {
+        if (time[index] == c) return false;
+        time[index] = c;
+        return true;
+    }
+
+    /** Buffer of the last {@link #formatTime}; valid up to {@link #timeLength()}. Do not modify. */
+    @NonNull
+    char[] timeChars() {
+        return time;
+    }
+
+    int timeLength() {
+        return timeLength;
+    }
+
+    /** Makes the next {@link #formatTime} report a change, for a freshly created time view. */
+    void invalidateTime() {
+        timeLength = 0;
+    }
+
+    /**
+     * Date / day-of-week text for {@code now}. The same String instance is returned until the day
+     * or one of the options changes, so callers can compare by identity.
+     */
+    @NonNull
+    String formatDate(long now, boolean showDate, boolean showDayOfWeek, boolean fullNames,
+                      boolean dateBeforeDayOfWeek, boolean oneLine) {
+        calendar.setTimeInMillis(now);
+        int year = calendar.get(Calendar.YEAR);
+        int dayOfYear = calendar.get(Calendar.DAY_OF_YEAR);
+        int options = (showDate ? 1 : 0) | (showDayOfWeek ? 2 : 0) | (fullNames ? 4 : 0)
+                | (dateBeforeDayOfWeek ? 8 : 0) | (oneLine ? 16 : 0);
+        long key = ((long) year * 400 + dayOfYear) * 32 + options;
+        if (key == dateKey) return date;
+
+        dateBuilder.setLength(0);
+        appendDateText(dateBuilder, showDate, showDayOfWeek, dateBeforeDayOfWeek, oneLine,
+                (fullNames ? fullDays : shortDays)[calendar.get(Calendar.DAY_OF_WEEK)],
+                calendar.get(Calendar.DAY_OF_MONTH),
+                (fullNames ? fullMonths : shortMonths)[calendar.get(Calendar.MONTH)]);
+        date = dateBuilder.toString();
+        dateKey = key;
+        return date;
+    }
+
+    /**
+     * Width in pixels of the widest text {@link #formatDate} can produce with these options: the
+     * widest day name, day number and month name of the locale put together. Lets the date
+     * brick keep its size from day to day.
+     */
+    int widestDateWidth(@NonNull TextPaint paint, boolean showDate, boolean showDayOfWeek,
+                        boolean fullNames, boolean dateBeforeDayOfWeek, boolean oneLine) {
+        if (!showDate && !showDayOfWeek) return 0;
+        String day = widest(paint, fullNames ? fullDays : shortDays);
+        String month = widest(paint, fullNames ? fullMonths : shortMonths);
+        int dayOfMonth = 1;
+        float dayOfMonthWidth = 0;
+        for (int d = 1; d <= 31; d++) {
+            float w = paint.measureText(Integer.toString(d));
+            if (w > dayOfMonthWidth) {
+                dayOfMonthWidth = w;
+                dayOfMonth = d;
+            }
+        }
+        StringBuilder b = new StringBuilder();
+        appendDateText(b, showDate, showDayOfWeek, dateBeforeDayOfWeek, oneLine, day, dayOfMonth, month);
+        return (int) Math.ceil(Layout.getDesiredWidth(b, paint));
+    }
+
+    private static String widest(Paint paint, String[] names) {
+        String widest = "";
+        float widestWidth = 0;
+        for (String name : names) {
+            float w = paint.measureText(name);
+            if (w > widestWidth) {
+                widestWidth = w;
+                widest = name;
+            }
+        }
+        return widest;
+    }
+
+    private static void appendDateText(StringBuilder b, boolean showDate, boolean showDayOfWeek,
+                                       boolean dateBeforeDayOfWeek, boolean oneLine,
+                                       String dayName, int dayOfMonth, String monthName) {
+        boolean both = showDate && showDayOfWeek;
+        if (dateBeforeDayOfWeek) {
+            if (showDate) b.append(' ').append(dayOfMonth).append(' ').append(monthName);
+            if (both) b.append(oneLine ? "," : " \n");
+            if (showDayOfWeek) b.append(' ').append(dayName);
+        } else {
+            if (showDayOfWeek) b.append(' ').append(dayName);
+            if (both) b.append(oneLine ? "," : " \n");
+            if (showDate) b.append(' ').append(dayOfMonth).append(' ').append(monthName);
+        }
+        b.append(' ');
+    }
+
+    /** Widest advance among the digits — the slot every clock digit is drawn in. */
+    static float digitSlotWidth(@NonNull Paint paint) {
+        float slot = 0;
+        for (String digit : DIGITS) {
+            slot = Math.max(slot, paint.measureText(digit));
+        }
+        return slot;
+    }
+
+    /**
+     * Width in pixels that fits any {@code HH:mm} / {@code HH:mm:ss} in {@code paint} — every
+     * digit in a {@link #digitSlotWidth} slot.
+     */
+    static int reservedTimeWidth(@NonNull Paint paint, boolean showSeconds) {
+        int digits = showSeconds ? 6 : 4;
+        int colons = showSeconds ? 2 : 1;
+        return (int) Math.ceil(digits * digitSlotWidth(paint) + colons * paint.measureText(":"));
+    }
+}
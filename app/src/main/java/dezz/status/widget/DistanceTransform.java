@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+/**
+ * The outline math behind {@link IconOutlines#fromRendering}: exact squared Euclidean distance
+ * transform (Felzenszwalb &amp; Huttenlocher) and the coverage ramp on top of it. Plain arrays
+ * only, so it runs — and is tested and benchmarked — on a desktop JVM.
+ */
+final class DistanceTransform {
+    /** "No feature pixel" for the transform — finite so differences stay defined. */
+    static final float FAR = 1e20F;
+
+    // Scratch buffers, grown on demand and reused across calls. Guarded by the class lock.
+    private static float[] dist2 = new float[0];
+    private static float[] lineIn = new float[0];
+    private static float[] lineOut = new float[0];
+    private static int[] hullVertices = new int[0];
+    private static float[] hullBounds = new float[0];
+
+    /**
+     * Outline coverage of a {@code w}×{@code h} ARGB rendering into {@code out}, {@code w} bytes
+     * per row at {@code rowStride}. Pixels at least half-opaque are the shape; every pixel within
+     * {@code radius} of the shape is fully covered, with a one-pixel anti-aliased falloff beyond.
+     */
+    static synchronized void outlineMask(int[] argb, int w, int h, int radius,
+                                         byte[] out, int rowStride) {
+        int n = w * h;
+        if (dist2.length < n) {
+            dist2 = new float[n];
+        }
+        for (int i = 0; i < n; i++) {
+            dist2[i] = (argb[i] >>> 24) >= 128 ? 0F : FAR;
+        }
+        squaredDistances(dist2, w, h);
+
+        float inner = (float) radius * radius;
+        float outer = (radius + 1F) * (radius + 1F);
+        for (int y = 0; y < h; y++) {
+            int row = y * w;
+            int o = y * rowStride;
+            for (int x = 0; x < w; x++) {
+                float d2 = dist2[row + x];
+                int a;
+                if (d2 <= inner) {
+                    a = 0xFF;
+                } else if (d2 >= outer) {
+                    a = 0;
+                } else {
+                    a = (int) ((radius + 1F - (float) Math.sqrt(d2)) * 0xFF);
+                }
+                out[o + x] = (byte) a;
+            }
+        }
+    }
+
+    /**
+     * Squared distance transform of {@code d} in place: on input shape pixels are {@code 0} and
+     * the rest {@link #FAR}; on output every pixel holds the squared distance to the nearest
+     * shape pixel. The 1-D transform runs down every column, then along every row.
+     */
+    static synchronized void squaredDistances(float[] d, int w, int h) {
+        int maxSide = Math.max(w, h);
+        if (lineIn.length < maxSide) {
+            lineIn = new float[maxSide];
+            lineOut = new float[maxSide];
+            hullVertices = new int[maxSide];
+            hullBounds = new float[maxSide + 1];
+        }
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                lineIn[y] = d[y * w + x];
+            }
+            transformLine(h);
+            for (int y = 0; y < h; y++) {
+                d[y * w + x] = lineOut[y];
+            }
+        }
+        for (int y = 0; y < h; y++) {
+            int row = y * w;
+            System.arraycopy(d, row, lineIn, 0, w);
+            transformLine(w);
+            System.arraycopy(lineOut, 0, d, row, w);
+        }
+    }
+
+    /** 1-D squared distance transform of {@link #lineIn} into {@link #lineOut}: lower envelope of parabolas. */
+    private static void transformLine(int n) {
+        float[] f = lineIn;
+        int[] v = hullVertices;
+        float[] z = hullBounds;
+        int k = 0;
+        v[0] = 0;
+        z[0] = -Float.MAX_VALUE;
+        z[1] = Float.MAX_VALUE;
+        for (int q = 1; q < n; q++) {
+            float s = intersection(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersection(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = Float.MAX_VALUE;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            int dq = q - v[k];
+            lineOut[q] = dq * dq + f[v[k]];
+        }
+    }
+
+    private static float intersection(float[] f, int q, int p) {
+        return ((f[q] + (float) q * q) - (f[p] + (float) p * p)) / (2F * q - 2F * p);
+    }
+
+    private DistanceTransform() {}
+}
@@ -18,32 +18,62 @@
 package dezz.status.widget;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.graphics.Typeface;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.OpenableColumns;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.core.content.res.ResourcesCompat;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Catalogue of font families available to text bricks. Mixes one bundled font (Roboto Condensed —
  * used historically and kept as the default) with a small set of widely-available Android system
- * families resolved via {@link Typeface#create(String, int)}.
+ * families resolved via {@link Typeface#create(String, int)}, plus TTF/OTF files the user
+ * imported ({@link #importFont}).
  *
  * Families are referenced by a stable string key stored in {@link Preferences}, so renaming the
  * display labels never breaks saved preferences.
+ *
+ * Resolved typefaces are kept in a registry keyed by family and style, so each one is created
+ * once per process. Bundled and imported families are read on a background thread —
+ * {@link #resolve} never waits for them: until a family is loaded it returns the system default
+ * in the same style and notifies {@link #addLoadListener listeners} once the real one is in.
  */
 public final class Fonts {
+    private static final String TAG = "Fonts";
+
     /** Stable storage key for the default family — keep in sync with {@link #DEFAULT}. */
     public static final String DEFAULT_KEY = "roboto_condensed";
 
+    /** Key prefix of imported families; the rest of the key is the file name. */
+    private static final String USER_KEY_PREFIX = "file:";
+    private static final String USER_FONTS_DIR = "fonts";
+
     public static final class Family {
         /** Stored in SharedPreferences — never localised, never renamed. */
         public final String key;
+        /** {@code 0} for imported families. */
         @StringRes
         public final int labelRes;
         /** {@code 0} for system families. */
@@ -51,16 +81,45 @@ public final class Fonts {
         /** {@code null} for bundled families. */
         @Nullable
         private final String systemName;
+        /** Imported font file; {@code null} for built-in families. */
+        @Nullable
+        private final File file;
 
         Family(String key, @StringRes int labelRes, int fontRes, @Nullable String systemName) {
+            this(key, labelRes, fontRes, systemName, null);
+        }
+
+        private Family(String key, @StringRes int labelRes, int fontRes, @Nullable String systemName,
+                       @Nullable File file) {
             this.key = key;
             this.labelRes = labelRes;
             this.fontRes = fontRes;
             this.systemName = systemName;
+            this.file = file;
+        }
+
+        @NonNull
+        public String label(@NonNull Context context) {
+            if (file != null) {
+                String name = file.getName();
+                int dot = name.lastIndexOf('.');
+                return dot > 0 ? name.substring(0, dot) : name;
+            }
+            return context.getString(labelRes);
+        }
+
+        /** System families are a lookup in the system font map — cheap enough for any thread. */
+        private boolean isSystem() {
+            return fontRes == 0 && file == null;
         }
 
         @NonNull
         Typeface base(@NonNull Context context) {
+            if (file != null) {
+                Typeface tf = new Typeface.Builder(file).build();
+                if (tf != null) return tf;
+                Log.w(TAG, "Cannot load font " + file);
+            }
             if (fontRes != 0) {
                 Typeface tf = ResourcesCompat.getFont(context, fontRes);
                 if (tf != null) return tf;
@@ -85,27 +144,223 @@ public final class Fonts {
             new Family("monospace", R.string.font_monospace, 0, "monospace")
     ));
 
+    /** Built-in families followed by the imported ones, sorted by file name. */
     @NonNull
-    public static Family findByKey(@Nullable String key) {
+    public static List<Family> all(@NonNull Context context) {
+        List<Family> families = new ArrayList<>(ALL);
+        File[] files = userFontsDir(context).listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File f : files) {
+                if (f.isFile() && !f.getName().endsWith(".tmp")) {
+                    families.add(userFamily(f));
+                }
+            }
+        }
+        return families;
+    }
+
+    @NonNull
+    public static Family findByKey(@NonNull Context context, @Nullable String key) {
         if (key != null) {
-            for (Family f : ALL) {
-                if (f.key.equals(key)) return f;
+            if (key.startsWith(USER_KEY_PREFIX)) {
+                File f = new File(userFontsDir(context), key.substring(USER_KEY_PREFIX.length()));
+                if (f.isFile()) return userFamily(f);
+            } else {
+                for (Family f : ALL) {
+                    if (f.key.equals(key)) return f;
+                }
             }
         }
         return DEFAULT;
     }
 
+    // --- Registry ---
+
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Fonts");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    /** Family key → typefaces by style ({@code Typeface.NORMAL .. BOLD_ITALIC}). Guarded by itself. */
+    private static final HashMap<String, Typeface[]> registry = new HashMap<>();
+    /** Family keys queued on {@link #loader}. Guarded by {@link #registry}. */
+    private static final HashSet<String> loading = new HashSet<>();
+    private static final CopyOnWriteArrayList<Runnable> loadListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Resolves a family key + bold/italic flags into a styled {@link Typeface}. Falls back to the
      * default family if {@code key} is unknown so a typo in stored prefs can't crash the widget.
+     * Never blocks on font loading: a family that isn't loaded yet comes back as the system
+     * default in the requested style, and the load is queued.
      */
     @NonNull
     public static Typeface resolve(@NonNull Context context, @Nullable String key,
                                    boolean bold, boolean italic) {
-        Typeface base = findByKey(key).base(context);
         int style = (bold ? Typeface.BOLD : 0) | (italic ? Typeface.ITALIC : 0);
-        if (style == Typeface.NORMAL) return base;
-        return Typeface.create(base, style);
+        String familyKey = key != null ? key : DEFAULT_KEY;
+        synchronized (registry) {
+            Typeface[] styles = registry.get(familyKey);
+            if (styles != null) {
+                if (styles[style] == null) {
+                    styles[style] = Typeface.create(styles[Typeface.NORMAL], style);
+                }
+                return styles[style];
+            }
+        }
+        Family family = findByKey(context, familyKey);
+        if (family.isSystem()) {
+            register(familyKey, family.base(context));
+            return resolve(context, familyKey, bold, italic);
+        }
+        queueLoad(context, familyKey, family);
+        return Typeface.defaultFromStyle(style);
+    }
+
+    /** Loads the given families in the background so the first {@link #resolve} finds them ready. */
+    public static void preload(@NonNull Context context, @NonNull String... keys) {
+        for (String key : keys) {
+            if (key == null) continue;
+            synchronized (registry) {
+                if (registry.containsKey(key)) continue;
+            }
+            Family family = findByKey(context, key);
+            if (family.isSystem()) {
+                register(key, family.base(context));
+            } else {
+                queueLoad(context, key, family);
+            }
+        }
+    }
+
+    /** {@code listener} runs on the main thread each time a background family load completes. */
+    public static void addLoadListener(@NonNull Runnable listener) {
+        loadListeners.addIfAbsent(listener);
+    }
+
+    public static void removeLoadListener(@NonNull Runnable listener) {
+        loadListeners.remove(listener);
+    }
+
+    private static void queueLoad(Context context, String key, Family family) {
+        synchronized (registry) {
+            if (!loading.add(key)) return;
+        }
+        Context appContext = context.getApplicationContext();
+        loader.execute(() -> {
+            Typeface base;
+            try {
+                base = family.base(appContext);
+            } catch (RuntimeException e) {
+                // Missing or corrupt font — remember the fallback rather than retry on every apply.
+                Log.w(TAG, "Cannot load font family " + key, e);
+                base = Typeface.DEFAULT;
+            }
+            Typeface loaded = base;
+            mainHandler.post(() -> {
+                synchronized (registry) {
+                    loading.remove(key);
+                }
+                register(key, loaded);
+                for (Runnable listener : loadListeners) {
+                    listener.run();
+                }
+            });
+        });
+    }
+
+    private static void register(String key, Typeface base) {
+        synchronized (registry) {
+            Typeface[] styles = new Typeface[4];
+            styles[Typeface.NORMAL] = base;
+            registry.put(key, styles);
+        }
+    }
+
+    // --- Imported fonts ---
+
+    /** Thrown by {@link #importFont} when the file isn't a TrueType/OpenType font. */
+    public static final class InvalidFontException extends IOException {
+        InvalidFontException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Copies a TTF/OTF document into app storage and returns the key of the new family. An import
+     * with the same file name replaces the earlier one.
+     */
+    @NonNull
+    public static String importFont(@NonNull Context context, @NonNull Uri uri) throws IOException {
+        File dir = userFontsDir(context);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File tmp = new File(dir, "import.tmp");
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            if (in == null) {
+                throw new IOException("Could not open input stream");
+            }
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                byte[] buffer = new byte[16 * 1024];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+            }
+            String ext = fontExtension(tmp);
+            if (ext == null || new Typeface.Builder(tmp).build() == null) {
+                throw new InvalidFontException("Not a TrueType/OpenType font: " + uri);
+            }
+            File target = new File(dir, baseName(context, uri) + ext);
+            if (!tmp.renameTo(target)) {
+                throw new IOException("Cannot move font to " + target);
+            }
+            String key = USER_KEY_PREFIX + target.getName();
+            synchronized (registry) {
+                registry.remove(key);
+            }
+            return key;
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static File userFontsDir(Context context) {
+        return new File(context.getFilesDir(), USER_FONTS_DIR);
+    }
+
+    private static Family userFamily(File file) {
+        return new Family(USER_KEY_PREFIX + file.getName(), 0, 0, null, file);
+    }
+
+    /** ".ttf" or ".otf" by the sfnt version tag, or {@code null} for anything else. */
+    @Nullable
+    private static String fontExtension(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < 12) return null;
+            int tag = raf.readInt();
+            if (tag == 0x00010000 || tag == 0x74727565 /* 'true' */) return ".ttf";
+            if (tag == 0x4F54544F /* 'OTTO' */) return ".otf";
+            return null;
+        }
+    }
+
+    /** Display name of the document without extension, reduced to a safe file name. */
+    private static String baseName(Context context, Uri uri) {
+        String name = null;
+        try (Cursor c = context.getContentResolver().query(uri,
+                new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (c != null && c.moveToFirst()) name = c.getString(0);
+        } catch (RuntimeException ignored) {
+        }
+        if (name == null) name = uri.getLastPathSegment();
+        if (name == null) name = "font";
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+        name = name.replaceAll("[^\\p{L}\\p{N} ._-]", "_").trim();
+        return name.isEmpty() ? "font" : name;
     }
 
     private Fonts() {}
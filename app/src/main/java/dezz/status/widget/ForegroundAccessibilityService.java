@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import android.accessibilityservice.AccessibilityService;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.view.accessibility.AccessibilityEvent;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+
+/**
+ * Optional accessibility service that reports window-state changes to
+ * {@link AccessibilityForegroundSource}. It asks for no window content (see
+ * {@code res/xml/foreground_accessibility_service.xml}) — only the package and class of each
+ * window that comes up.
+ *
+ * Dialogs, the shade and overlays send the same event, so only windows whose class is an
+ * activity count; the lookups are cached. Callbacks arrive on the main thread, the same one the
+ * widget lives on.
+ */
+public class ForegroundAccessibilityService extends AccessibilityService {
+    private static boolean connected = false;
+    @Nullable private static ForegroundAppSource.Listener listener;
+    @Nullable private static String lastPackage;
+    @Nullable private static String lastClass;
+
+    /** {@code package/class} → whether it's an activity. */
+    private final HashMap<String, Boolean> activityClasses = new HashMap<>();
+
+    static boolean isConnected() {
+        return connected;
+    }
+
+    /** Main thread. The last known app, if any, is reported right away. */
+    static void setListener(@Nullable ForegroundAppSource.Listener newListener) {
+        listener = newListener;
+        if (newListener != null && lastPackage != null) {
+            newListener.onForegroundApp(lastPackage, lastClass);
+        }
+    }
+
+    @Override
+    protected void onServiceConnected() {
+        connected = true;
+        WidgetService.onForegroundAppSourcesChanged();
+    }
+
+    @Override
+    public void onAccessibilityEvent(AccessibilityEvent event) {
+        if (event.getEventType() != AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) return;
+        CharSequence pkg = event.getPackageName();
+        CharSequence cls = event.getClassName();
+        if (pkg == null || cls == null) return;
+        String packageName = pkg.toString();
+        String className = cls.toString();
+        if (!isActivity(packageName, className)) return;
+        lastPackage = packageName;
+        lastClass = className;
+        if (listener != null) {
+            listener.onForegroundApp(packageName, className);
+        }
+    }
+
+    private boolean isActivity(String packageName, String className) {
+        String key = packageName + "/" + className;
+        Boolean known = activityClasses.get(key);
+        if (known != null) return known;
+        boolean activity;
+        try {
+            getPackageManager().getActivityInfo(new ComponentName(packageName, className), 0);
+            activity = true;
+        } catch (PackageManager.NameNotFoundException e) {
+            activity = false;
+        }
+        activityClasses.put(key, activity);
+        return activity;
+    }
+
+    @Override
+    public void onInterrupt() {
+    }
+
+    @Override
+    public boolean onUnbind(Intent intent) {
+        disconnect();
+        return super.onUnbind(intent);
+    }
+
+    @Override
+    public void onDestroy() {
+        disconnect();
+        super.onDestroy();
+    }
+
+    private void disconnect() {
+        if (!connected) return;
+        connected = false;
+        lastPackage = null;
+        lastClass = null;
+        WidgetService.onForegroundAppSourcesChanged();
+    }
+}
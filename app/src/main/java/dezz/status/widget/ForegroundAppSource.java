@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Where {@link WidgetService} learns which app is in the foreground, for the hide-in-apps lists.
+ *
+ * Two backends: {@link UsageStatsForegroundSource} polls the usage events and works wherever
+ * Usage Access is granted; {@link AccessibilityForegroundSource} is fed by window-state events of
+ * {@link ForegroundAccessibilityService} — no polling, and the widget hides in the same frame the
+ * app window shows up. The service uses the accessibility one while that service is connected.
+ *
+ * Main thread only.
+ */
+interface ForegroundAppSource {
+    interface Listener {
+        /**
+         * Current foreground package and, if the source knows it, its activity class. May repeat
+         * the previous one.
+         */
+        void onForegroundApp(@NonNull String packageName, @Nullable String className);
+
+        /** The source can't report any more (its permission was revoked) and has stopped. */
+        void onSourceLost();
+    }
+
+    /** Starts reporting to {@code listener}, or restarts with a fresh read if already running. */
+    void start(@NonNull Listener listener);
+
+    void stop();
+}
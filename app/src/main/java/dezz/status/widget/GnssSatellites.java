@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import android.location.GnssStatus;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Satellite summary for the GPS badge, read from the platform {@link GnssStatus}: satellites
+ * used in the fix, satellites with a signal and their mean C/N0.
+ *
+ * Some chipsets report status ten times a second; {@link #update} takes at most one report per
+ * {@link #MIN_INTERVAL_MS} and reads it without allocating. The service asks {@link #hasData}
+ * before trusting the numbers — head units whose HAL reports no satellites at all fall back to
+ * the GNSS Share broadcast. Main thread only.
+ */
+final class GnssSatellites {
+    static final long MIN_INTERVAL_MS = 1000L;
+    /** Numbers older than this are not shown. */
+    static final long TIMEOUT_MS = 30_000L;
+
+    int usedInFix;
+    int visible;
+    /** Mean C/N0 of the satellites used in the fix, or of the visible ones without a fix; dB-Hz. */
+    float meanCn0DbHz;
+
+    private long acceptedAt = 0;
+    /** {@link android.os.SystemClock#elapsedRealtime()} of the last report listing satellites. */
+    private long dataAt = 0;
+
+    /** Reads {@code status} unless the previous report was taken too recently. */
+    boolean update(@NonNull GnssStatus status, long now) {
+        if (acceptedAt != 0 && now - acceptedAt < MIN_INTERVAL_MS) return false;
+        acceptedAt = now;
+        int count = status.getSatelliteCount();
+        int used = 0;
+        int heard = 0;
+        float usedCn0 = 0;
+        float heardCn0 = 0;
+        for (int i = 0; i < count; i++) {
+            float cn0 = status.getCn0DbHz(i);
+            if (cn0 > 0) {
+                heard++;
+                heardCn0 += cn0;
+            }
+            if (status.usedInFix(i)) {
+                used++;
+                usedCn0 += cn0;
+            }
+        }
+        usedInFix = used;
+        visible = heard;
+        meanCn0DbHz = used > 0 ? usedCn0 / used : heard > 0 ? heardCn0 / heard : 0;
+        if (count > 0) {
+            dataAt = now;
+        }
+        return true;
+    }
+
+    /** Whether the platform listed any satellites within {@link #TIMEOUT_MS} of {@code now}. */
+    boolean hasData(long now) {
+        return dataAt != 0 && now - dataAt < TIMEOUT_MS;
+    }
+
+    void reset() {
+        usedInFix = 0;
+        visible = 0;
+        meanCn0DbHz = 0;
+        acceptedAt = 0;
+        dataAt = 0;
+    }
+}
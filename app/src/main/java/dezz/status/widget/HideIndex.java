@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hide-in-apps lists compiled into one lookup: foreground package (and activity) → bitmask of
+ * what to hide. Bit {@code ordinal} stands for a brick, {@link #WIDGET} for the whole widget.
+ * Built by {@link PreferencesSnapshot} once per settings change, so a foreground switch costs a
+ * single {@link #lookup} and the service only touches the bricks whose bit flipped.
+ *
+ * A list entry is one of
+ * <ul>
+ *   <li>{@code com.example.app} — the package, what the app picker stores;</li>
+ *   <li>{@code com.android.camera*} — every package starting with the prefix; a lone
+ *       {@code *} matches every app;</li>
+ *   <li>{@code com.example.app/.SettingsActivity} or {@code com.example.app/com.example.Other}
+ *       — one activity of the package, when the foreground source reports activities.</li>
+ * </ul>
+ * Prefix rules live in a character trie, so the lookup walks the package name once however
+ * many of them there are. Main thread only — the lookup allocates nothing.
+ */
+final class HideIndex {
+    static final int WIDGET = 1 << BrickType.values().length;
+    static final int ALL_BRICKS = WIDGET - 1;
+
+    private static final HideIndex EMPTY = new HideIndex();
+
+    /** Trie node; {@code mask} holds the rules ending here with {@code *}. */
+    private static final class Node {
+        int mask;
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+
+        @Nullable
+        Node child(char c) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == c) return children[i];
+            }
+            return null;
+        }
+
+        Node getOrAddChild(char c) {
+            Node child = child(c);
+            if (child != null) return child;
+            int n = labels.length;
+            char[] newLabels = new char[n + 1];
+            Node[] newChildren = new Node[n + 1];
+            System.arraycopy(labels, 0, newLabels, 0, n);
+            System.arraycopy(children, 0, newChildren, 0, n);
+            newLabels[n] = c;
+            newChildren[n] = child = new Node();
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    private final HashMap<String, Integer> packages = new HashMap<>();
+    /** Package → activity class → mask. */
+    private final HashMap<String, HashMap<String, Integer>> activities = new HashMap<>();
+    private final Node prefixes = new Node();
+    private boolean hasPrefixes;
+    private int keepSpace;
+
+    private HideIndex() {
+    }
+
+    static int bit(@NonNull BrickType type) {
+        return 1 << type.ordinal();
+    }
+
+    /**
+     * @param widgetList the whole-widget hide list
+     * @param brickLists effective hide list of every brick
+     * @param keepSpace  bricks that stay INVISIBLE instead of GONE while hidden
+     */
+    @NonNull
+    static HideIndex build(@NonNull Set<String> widgetList,
+                           @NonNull Map<BrickType, Set<String>> brickLists, int keepSpace) {
+        if (widgetList.isEmpty() && keepSpace == 0 && allEmpty(brickLists)) return EMPTY;
+        HideIndex index = new HideIndex();
+        index.keepSpace = keepSpace;
+        index.addAll(widgetList, WIDGET);
+        for (Map.Entry<BrickType, Set<String>> e : brickLists.entrySet()) {
+            index.addAll(e.getValue(), bit(e.getKey()));
+        }
+        return index;
+    }
+
+    private static boolean allEmpty(Map<BrickType, Set<String>> lists) {
+        for (Set<String> list : lists.values()) {
+            if (!list.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    private void addAll(Set<String> rules, int mask) {
+        for (String rule : rules) {
+            add(rule.trim(), mask);
+        }
+    }
+
+    private void add(String rule, int mask) {
+        if (rule.isEmpty()) return;
+        int slash = rule.indexOf('/');
+        if (slash > 0 && slash < rule.length() - 1) {
+            String pkg = rule.substring(0, slash);
+            String cls = rule.substring(slash + 1);
+            if (cls.startsWith(".")) cls = pkg + cls;
+            HashMap<String, Integer> classes = activities.get(pkg);
+            if (classes == null) {
+                classes = new HashMap<>();
+                activities.put(pkg, classes);
+            }
+            merge(classes, cls, mask);
+        } else if (rule.endsWith("*")) {
+            Node node = prefixes;
+            for (int i = 0; i < rule.length() - 1; i++) {
+                node = node.getOrAddChild(rule.charAt(i));
+            }
+            node.mask |= mask;
+            hasPrefixes = true;
+        } else if (slash < 0) {
+            merge(packages, rule, mask);
+        }
+    }
+
+    private static void merge(HashMap<String, Integer> map, String key, int mask) {
+        Integer old = map.get(key);
+        map.put(key, old != null ? old | mask : mask);
+    }
+
+    /** What to hide while {@code packageName} (showing {@code className}, if known) is in front. */
+    int lookup(@Nullable String packageName, @Nullable String className) {
+        if (packageName == null) return 0;
+        int mask = 0;
+        Integer exact = packages.get(packageName);
+        if (exact != null) mask |= exact;
+        if (className != null && !activities.isEmpty()) {
+            HashMap<String, Integer> classes = activities.get(packageName);
+            if (classes != null) {
+                Integer activity = classes.get(className);
+                if (activity != null) mask |= activity;
+            }
+        }
+        if (hasPrefixes) {
+            Node node = prefixes;
+            mask |= node.mask;
+            for (int i = 0; i < packageName.length() && node != null; i++) {
+                node = node.child(packageName.charAt(i));
+                if (node != null) mask |= node.mask;
+            }
+        }
+        return mask;
+    }
+
+    boolean keepsSpace(@NonNull BrickType type) {
+        return (keepSpace & bit(type)) != 0;
+    }
+}
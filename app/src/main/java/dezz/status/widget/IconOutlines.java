@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Outline mask, icon placement and badge drawing shared by {@link OutlineImageView} and the icon bricks of
+ * {@link StatusWidgetView}, so both rendering modes produce pixel-identical icons.
+ */
+final class IconOutlines {
+    // Scratch buffers, grown on demand and reused across builds. Guarded by the class lock.
+    private static int[] pixels = new int[0];
+    private static byte[] maskBytes = new byte[0];
+    private static ByteBuffer maskBuffer = ByteBuffer.wrap(maskBytes);
+
+    /**
+     * Builds the outline mask for an icon already rendered (scaled and positioned) into
+     * {@code rendered}. Only the alpha channel of the rendering is used. The result is an
+     * {@link Bitmap.Config#ALPHA_8} mask — draw it with a paint whose colour is the outline colour.
+     *
+     * Pixels at least half-opaque are the shape; every pixel within {@code radius} of the shape
+     * (exact Euclidean distance, see {@link DistanceTransform}) is fully covered, with a
+     * one-pixel anti-aliased falloff beyond.
+     */
+    @NonNull
+    static synchronized Bitmap fromRendering(@NonNull Bitmap rendered, int radius) {
+        int w = rendered.getWidth();
+        int h = rendered.getHeight();
+        if (pixels.length < w * h) {
+            pixels = new int[w * h];
+        }
+        rendered.getPixels(pixels, 0, w, 0, 0, w, h);
+
+        Bitmap outline = Bitmap.createBitmap(w, h, Bitmap.Config.ALPHA_8);
+        int rowBytes = outline.getRowBytes();
+        if (maskBytes.length < rowBytes * h) {
+            maskBytes = new byte[rowBytes * h];
+            maskBuffer = ByteBuffer.wrap(maskBytes);
+        }
+        DistanceTransform.outlineMask(pixels, w, h, radius, maskBytes, rowBytes);
+        maskBuffer.rewind();
+        outline.copyPixelsFromBuffer(maskBuffer);
+        return outline;
+    }
+
+    /**
+     * Positions {@code drawable} the way a FIT_CENTER ImageView of {@code w}×{@code h} with
+     * {@code insetX} horizontal padding on each side shows it.
+     */
+    static void fitCenter(@NonNull Drawable drawable, int w, int h, int insetX) {
+        int availW = Math.max(0, w - 2 * insetX);
+        int iw = drawable.getIntrinsicWidth();
+        int ih = drawable.getIntrinsicHeight();
+        if (iw <= 0 || ih <= 0) {
+            drawable.setBounds(insetX, 0, insetX + availW, h);
+            return;
+        }
+        float scale = Math.min(availW / (float) iw, h / (float) ih);
+        int dw = Math.round(iw * scale);
+        int dh = Math.round(ih * scale);
+        int left = insetX + (availW - dw) / 2;
+        int top = (h - dh) / 2;
+        drawable.setBounds(left, top, left + dw, top + dh);
+    }
+
+    /** Small drawable badge (e.g. the whitelist flag) in the bottom-right corner of a w×h icon. */
+    static void drawBadgeDrawable(@NonNull Canvas canvas, int w, int h, @NonNull Drawable badge) {
+        int side = Math.min(w, h);
+        int badgeSize = (int) (side * 0.45f);
+        int padding = (int) (side * 0.04f);
+        int left = w - badgeSize - padding;
+        int top = h - badgeSize - padding;
+        badge.setBounds(left, top, left + badgeSize, top + badgeSize);
+        badge.draw(canvas);
+    }
+
+    /** Rounded text badge (e.g. satellite count) in the bottom-right corner of a w×h icon. */
+    static void drawTextBadge(@NonNull Canvas canvas, int w, int h, @NonNull String text,
+                              int backgroundColor, int textColor,
+                              @NonNull Paint fillPaint, @NonNull Paint textPaint) {
+        int side = Math.min(w, h);
+        int textLength = text.length();
+        // Width grows with the number of characters (1 char = pill-like circle, more = wider pill).
+        float height = side * 0.32f;
+        float minWidth = height; // 1 character — round shape.
+        float widthPerChar = height * 0.6f;
+        float width = Math.max(minWidth, height * 0.4f + textLength * widthPerChar);
+        float padding = side * 0.02f;
+        float right = w - padding;
+        float bottom = h - padding;
+        float left = right - width;
+        float top = bottom - height;
+        float corner = height * 0.5f;
+
+        fillPaint.setStyle(Paint.Style.FILL);
+        fillPaint.setColor(backgroundColor);
+        canvas.drawRoundRect(left, top, right, bottom, corner, corner, fillPaint);
+
+        textPaint.setColor(textColor);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setFakeBoldText(true);
+        textPaint.setTextSize(height * 0.65f);
+        Paint.FontMetrics fm = textPaint.getFontMetrics();
+        float cx = (left + right) / 2f;
+        float cy = (top + bottom) / 2f - (fm.ascent + fm.descent) / 2f;
+        canvas.drawText(text, cx, cy, textPaint);
+    }
+
+    private IconOutlines() {}
+}
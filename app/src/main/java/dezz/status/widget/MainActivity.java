@@ -64,6 +64,8 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import dezz.status.widget.databinding.ActivityMainBinding;
 import dezz.status.widget.shell.PrivilegedShell;
@@ -92,6 +94,20 @@ public class MainActivity extends AppCompatActivity {
                 }
             });
 
+    /** Font MIME types are poorly registered on most devices, so the picker also offers binaries. */
+    private static final String[] FONT_MIME_TYPES = {
+            "font/ttf", "font/otf", "font/sfnt", "application/x-font-ttf",
+            "application/x-font-otf", "application/vnd.ms-opentype", "application/octet-stream"
+    };
+
+    private final ActivityResultLauncher<String[]> fontImportLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(),
+            uri -> {
+                if (uri != null) {
+                    importFont(uri);
+                }
+            });
+
     private final CompoundButton.OnCheckedChangeListener enableWidgetSwitchListener =
             (buttonView, isChecked) -> {
                 if (isChecked) {
@@ -137,6 +153,9 @@ public class MainActivity extends AppCompatActivity {
         }
 
         initializeViews();
+        brickAdapter.restoreInstanceState(savedInstanceState);
+        current = this;
+        deliverFontImport();
 
         if (prefs.widgetEnabled.get() && Permissions.allPermissionsGranted(this)) {
             startWidgetService();
@@ -179,10 +198,17 @@ public class MainActivity extends AppCompatActivity {
         // gating on it avoids granting (and toasting about) a permission the user doesn't need.
         boolean mediaPresent = BrickType.parseOrder(prefs.brickOrder.get()).contains(BrickType.MEDIA);
         if (mediaPresent && !Permissions.isNotificationAccessGranted(this)) {
-            rb.withNotificationListener(PrivilegedShell.notificationListenerComponent(
+            rb.withNotificationListener(PrivilegedShell.serviceComponent(
                     getPackageName(), MediaNotificationListener.class));
             any = true;
         }
+        // Likewise the accessibility service only serves the hide-in-apps lists. With it on the
+        // widget reacts to app switches as they happen instead of polling usage events.
+        if (prefs.anyHideListInUse() && !Permissions.isAccessibilityServiceEnabled(this)) {
+            rb.withAccessibilityService(PrivilegedShell.serviceComponent(
+                    getPackageName(), ForegroundAccessibilityService.class));
+            any = true;
+        }
         if (!any) {
             return;
         }
@@ -236,6 +262,7 @@ public class MainActivity extends AppCompatActivity {
             case BACKGROUND_LOCATION: return R.string.permission_label_background_location;
             case USAGE_ACCESS:        return R.string.permission_label_usage_access;
             case NOTIFICATION:        return R.string.permission_label_notification;
+            case ACCESSIBILITY:       return R.string.permission_label_accessibility;
             default: throw new IllegalArgumentException("Unknown kind " + kind);
         }
     }
@@ -371,7 +398,70 @@ public class MainActivity extends AppCompatActivity {
         recreate();
     }
 
+    /**
+     * Copies and validates the picked file on {@link #fontImportExecutor} — it may sit on a slow
+     * provider — and hands the family key (or the error toast) back to the main thread. The
+     * activity may be recreated meanwhile, so the result goes to whichever instance is current
+     * then, or waits in {@link #pendingFontImport} for the next one's {@code onCreate}.
+     */
+    private void importFont(Uri uri) {
+        final Context appContext = getApplicationContext();
+        fontImportExecutor.execute(() -> {
+            String key = null;
+            int errorRes = 0;
+            try {
+                key = Fonts.importFont(appContext, uri);
+            } catch (Fonts.InvalidFontException e) {
+                Log.w(TAG, "Invalid font file", e);
+                errorRes = R.string.font_import_invalid_toast;
+            } catch (Exception e) {
+                Log.e(TAG, "Font import failed", e);
+                errorRes = R.string.font_import_failed_toast;
+            }
+            final FontImportResult result = new FontImportResult(key, errorRes);
+            mainHandler.post(() -> {
+                pendingFontImport = result;
+                // An instance being recreated has already saved its import target; leave the
+                // result for its successor.
+                if (current != null && !current.isChangingConfigurations()) {
+                    current.deliverFontImport();
+                }
+            });
+        });
+    }
+
+    /** Consumes {@link #pendingFontImport}, if any. Main thread only. */
+    private void deliverFontImport() {
+        FontImportResult result = pendingFontImport;
+        if (result == null) return;
+        pendingFontImport = null;
+        if (result.familyKey == null) {
+            Toast.makeText(this, result.errorRes, Toast.LENGTH_LONG).show();
+            return;
+        }
+        brickAdapter.onFontImported(result.familyKey);
+    }
+
+    /** Outcome of a font import: the family key, or the error toast when it's {@code null}. */
+    private static final class FontImportResult {
+        @Nullable final String familyKey;
+        final int errorRes;
+
+        FontImportResult(@Nullable String familyKey, int errorRes) {
+            this.familyKey = familyKey;
+            this.errorRes = errorRes;
+        }
+    }
+
+    // The live instance and an import result nobody has taken yet; main thread only.
+    private static MainActivity current;
+    private static FontImportResult pendingFontImport;
+    private static final android.os.Handler mainHandler =
+            new android.os.Handler(android.os.Looper.getMainLooper());
+
     private BrickListAdapter brickAdapter;
+    private static final ExecutorService fontImportExecutor = Executors.newSingleThreadExecutor(r ->
+            new Thread(r, "FontImport"));
 
     private void initializeViews() {
         binding.sectionGeneral.enableWidgetSwitch.setChecked(prefs.widgetEnabled.get());
@@ -403,9 +493,16 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
 
+        bindDropdown(
+                binding.sectionGeneral.renderModeDropdown,
+                R.array.render_modes,
+                prefs.renderMode,
+                this::refreshFloatingControlsEnabled);
+
         ViewBinder binder = new ViewBinder(this);
 
         binder.bindCheckbox(binding.sectionGeneral.widgetAlignRightSwitch, prefs.widgetAlignRight);
+        binder.bindCheckbox(binding.sectionGeneral.statusBarSplitWindowsSwitch, prefs.statusBarSplitWindows);
 
         binder.bindColorComponentSlider(binding.sectionAppearance.backgroundAlphaSlider, prefs.backgroundAlpha);
         binder.bindPercentSlider(binding.sectionAppearance.backgroundCornerRadiusSlider, prefs.backgroundCornerRadius);
@@ -424,6 +521,8 @@ public class MainActivity extends AppCompatActivity {
         binding.sectionGeneral.widgetPositionYSlider.setValueTo(Math.max(1, dm.heightPixels));
         binder.bindSizeSlider(binding.sectionGeneral.widgetPositionXSlider, prefs.overlayX);
         binder.bindSizeSlider(binding.sectionGeneral.widgetPositionYSlider, prefs.overlayY);
+        binder.bindCheckbox(binding.sectionGeneral.dragSnapEdgesSwitch, prefs.dragSnapEdges);
+        binder.bindSizeSlider(binding.sectionGeneral.dragSnapGridSlider, prefs.dragSnapGrid);
         binder.bindSizeSlider(binding.sectionGeneral.widgetPaddingLeftSlider, prefs.paddingLeft);
         binder.bindSizeSlider(binding.sectionGeneral.widgetPaddingRightSlider, prefs.paddingRight);
         binder.bindSizeSlider(binding.sectionGeneral.widgetPaddingTopSlider, prefs.paddingTop);
@@ -431,17 +530,25 @@ public class MainActivity extends AppCompatActivity {
         refreshFloatingControlsEnabled();
     }
 
-    /** Position sliders, right-edge anchor switch and corner radius only matter in floating mode. */
+    /**
+     * Position sliders, right-edge anchor switch and corner radius only matter in floating mode;
+     * split status-bar windows only in status-bar mode drawn by views.
+     */
     private void refreshFloatingControlsEnabled() {
         boolean floating = prefs.widgetMode.get() != 1;
+        binding.sectionGeneral.statusBarSplitWindowsSwitch.setEnabled(
+                !floating && prefs.renderMode.get() == 0);
         binding.sectionGeneral.widgetAlignRightSwitch.setEnabled(floating);
         binding.sectionGeneral.widgetPositionXSlider.setEnabled(floating);
         binding.sectionGeneral.widgetPositionYSlider.setEnabled(floating);
+        binding.sectionGeneral.dragSnapEdgesSwitch.setEnabled(floating);
+        binding.sectionGeneral.dragSnapGridSlider.setEnabled(floating);
         binding.sectionAppearance.backgroundCornerRadiusSlider.setEnabled(floating);
     }
 
     private void setupBrickList() {
-        brickAdapter = new BrickListAdapter(this, prefs, this::refreshAddBrickChips);
+        brickAdapter = new BrickListAdapter(this, prefs, this::refreshAddBrickChips,
+                () -> fontImportLauncher.launch(FONT_MIME_TYPES));
         binding.sectionLayout.brickList.setLayoutManager(new LinearLayoutManager(this));
         binding.sectionLayout.brickList.setAdapter(brickAdapter);
 
@@ -525,7 +632,7 @@ public class MainActivity extends AppCompatActivity {
         dropdown.setOnItemClickListener((parent, view, position, id) -> {
             preference.set(position);
             if (WidgetService.isRunning()) {
-                WidgetService.getInstance().applyPreferences();
+                WidgetService.getInstance().applyPreference(preference.key);
             }
             if (onChange != null) {
                 onChange.run();
@@ -535,6 +642,22 @@ public class MainActivity extends AppCompatActivity {
 
     private final android.os.Handler overlayRegisterHandler = new android.os.Handler(android.os.Looper.getMainLooper());
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (brickAdapter != null) {
+            brickAdapter.saveInstanceState(outState);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (current == this) {
+            current = null;
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
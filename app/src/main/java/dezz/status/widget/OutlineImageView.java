@@ -22,8 +22,7 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
+import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 
@@ -32,12 +31,6 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatImageView;
 
 public class OutlineImageView extends AppCompatImageView {
-    // Chamfer (3-4) distance transform: 1 px straight = 3 units, diagonal = 4 units.
-    private static final int STRAIGHT = 3;
-    private static final int DIAGONAL = 4;
-    // Anti-aliasing band width (in distance units) for the outline edge.
-    private static final int AA_BAND = STRAIGHT;
-
     private int outlineColor = Color.TRANSPARENT;
     private int outlineWidth = 0;
     private boolean drawIcon = true;
@@ -48,13 +41,18 @@ public class OutlineImageView extends AppCompatImageView {
     private int badgeTextForegroundColor;
 
     private final Paint outlinePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint haloPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF haloBounds = new RectF();
+    /** Last vector outline drawn; stands in while the current icon's shape is parsed. */
+    @Nullable
+    private VectorOutlines.Shape haloShape;
     private final Paint badgeFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final Paint badgeTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private int filterColor = 0;
 
+    /** Resource behind the current drawable, 0 if it was set as a Drawable. */
+    private int imageResId;
     private Bitmap cachedOutline;
     private Drawable cachedDrawable;
-    private int cachedDrawableState = -1;
     private int cachedWidth;
     private int cachedHeight;
     private int cachedOutlineWidth;
@@ -131,216 +129,95 @@ public class OutlineImageView extends AppCompatImageView {
     @Override
     public void setImageDrawable(@Nullable Drawable drawable) {
         super.setImageDrawable(drawable);
+        imageResId = 0;
         invalidateOutlineCache();
     }
 
     @Override
     public void setImageResource(int resId) {
+        // AppCompat routes this through setImageDrawable(), which clears imageResId first.
         super.setImageResource(resId);
+        imageResId = resId;
         invalidateOutlineCache();
     }
 
     private void invalidateOutlineCache() {
-        if (cachedOutline != null) {
-            cachedOutline.recycle();
-            cachedOutline = null;
-        }
+        // Keep cachedOutline itself: it's drawn until the new drawable's mask is ready.
         cachedDrawable = null;
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         if (outlineWidth > 0 && Color.alpha(outlineColor) > 0) {
-            Bitmap outline = getOrBuildOutline();
-            if (outline != null) {
-                if (filterColor != outlineColor) {
-                    outlinePaint.setColorFilter(new PorterDuffColorFilter(outlineColor, PorterDuff.Mode.SRC_IN));
-                    filterColor = outlineColor;
+            VectorOutlines.Shape shape = VectorOutlines.request(getContext(), imageResId, this);
+            if (shape == null) {
+                // Still being parsed: keep the previous icon's halo until it lands.
+                shape = haloShape;
+            } else if (shape != VectorOutlines.NONE) {
+                haloShape = shape;
+            }
+            Drawable drawable = getDrawable();
+            if (shape == VectorOutlines.NONE) {
+                Bitmap outline = getOrBuildOutline();
+                if (outline != null) {
+                    // ALPHA_8 mask: drawn in the paint colour.
+                    outlinePaint.setColor(outlineColor);
+                    canvas.drawBitmap(outline, 0, 0, outlinePaint);
                 }
-                canvas.drawBitmap(outline, 0, 0, outlinePaint);
+            } else if (shape != null && drawable != null) {
+                // Where ImageView draws the drawable: its bounds through the image matrix, inside the padding.
+                haloBounds.set(drawable.getBounds());
+                getImageMatrix().mapRect(haloBounds);
+                haloBounds.offset(getPaddingLeft(), getPaddingTop());
+                haloPaint.setColor(outlineColor);
+                shape.drawHalo(canvas, haloBounds, outlineWidth, haloPaint);
             }
         }
         if (drawIcon) {
             super.onDraw(canvas);
         }
         if (badgeText != null) {
-            drawTextBadge(canvas);
+            IconOutlines.drawTextBadge(canvas, getWidth(), getHeight(), badgeText,
+                    badgeTextBackgroundColor, badgeTextForegroundColor, badgeFillPaint, badgeTextPaint);
         } else if (badgeDrawable != null) {
-            int w = getWidth();
-            int h = getHeight();
-            int side = Math.min(w, h);
-            int badgeSize = (int) (side * 0.45f);
-            int padding = (int) (side * 0.04f);
-            int left = w - badgeSize - padding;
-            int top = h - badgeSize - padding;
-            badgeDrawable.setBounds(left, top, left + badgeSize, top + badgeSize);
-            badgeDrawable.draw(canvas);
+            IconOutlines.drawBadgeDrawable(canvas, getWidth(), getHeight(), badgeDrawable);
         }
     }
 
-    private void drawTextBadge(Canvas canvas) {
-        int w = getWidth();
-        int h = getHeight();
-        int side = Math.min(w, h);
-        int textLength = badgeText != null ? badgeText.length() : 1;
-        // Width grows with the number of characters (1 char = pill-like circle, more = wider pill).
-        float height = side * 0.32f;
-        float minWidth = height; // 1 character — round shape.
-        float widthPerChar = height * 0.6f;
-        float width = Math.max(minWidth, height * 0.4f + textLength * widthPerChar);
-        float padding = side * 0.02f;
-        float right = w - padding;
-        float bottom = h - padding;
-        float left = right - width;
-        float top = bottom - height;
-        float corner = height * 0.5f;
-
-        badgeFillPaint.setStyle(Paint.Style.FILL);
-        badgeFillPaint.setColor(badgeTextBackgroundColor);
-        canvas.drawRoundRect(left, top, right, bottom, corner, corner, badgeFillPaint);
-
-        badgeTextPaint.setColor(badgeTextForegroundColor);
-        badgeTextPaint.setTextAlign(Paint.Align.CENTER);
-        badgeTextPaint.setFakeBoldText(true);
-        badgeTextPaint.setTextSize(height * 0.65f);
-        Paint.FontMetrics fm = badgeTextPaint.getFontMetrics();
-        float cx = (left + right) / 2f;
-        float cy = (top + bottom) / 2f - (fm.ascent + fm.descent) / 2f;
-        canvas.drawText(badgeText, cx, cy, badgeTextPaint);
-    }
-
+    /**
+     * Mask for the current drawable from {@link OutlineMaskCache}. While it's being built on the
+     * worker thread the previous mask is returned if it fits the same box, otherwise nothing —
+     * outlines are never computed here. Drawables not set from a resource get no outline.
+     */
     @Nullable
     private Bitmap getOrBuildOutline() {
         int w = getWidth();
         int h = getHeight();
         Drawable drawable = getDrawable();
-        if (drawable == null || w <= 0 || h <= 0) {
+        if (drawable == null || imageResId == 0 || w <= 0 || h <= 0) {
             return null;
         }
 
-        int drawableState = System.identityHashCode(drawable.getCurrent());
         if (cachedOutline != null
-                && !cachedOutline.isRecycled()
                 && cachedDrawable == drawable
-                && cachedDrawableState == drawableState
                 && cachedWidth == w
                 && cachedHeight == h
                 && cachedOutlineWidth == outlineWidth) {
             return cachedOutline;
         }
 
-        // Render the icon (with ImageView scaling/padding) into a bitmap and read its alpha channel.
-        Bitmap rendered = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
-        Canvas renderCanvas = new Canvas(rendered);
-        super.onDraw(renderCanvas);
-
-        int[] pixels = new int[w * h];
-        rendered.getPixels(pixels, 0, w, 0, 0, w, h);
-        rendered.recycle();
-
-        int[] alphas = new int[w * h];
-        for (int i = 0; i < pixels.length; i++) {
-            alphas[i] = (pixels[i] >>> 24) & 0xFF;
+        Bitmap outline = OutlineMaskCache.request(getContext(), imageResId, w, h, getPaddingLeft(),
+                outlineWidth, this);
+        if (outline == null) {
+            return cachedOutline != null && cachedWidth == w && cachedHeight == h
+                    ? cachedOutline : null;
         }
 
-        int[] dilated = dilateByDistance(alphas, w, h, outlineWidth);
-
-        // Pack as opaque-white pixels with dilated alpha; the actual color is applied via ColorFilter.
-        for (int i = 0; i < dilated.length; i++) {
-            pixels[i] = (dilated[i] << 24) | 0x00FFFFFF;
-        }
-
-        Bitmap outline = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
-        outline.setPixels(pixels, 0, w, 0, 0, w, h);
-
-        if (cachedOutline != null && !cachedOutline.isRecycled()) {
-            cachedOutline.recycle();
-        }
         cachedOutline = outline;
         cachedDrawable = drawable;
-        cachedDrawableState = drawableState;
         cachedWidth = w;
         cachedHeight = h;
         cachedOutlineWidth = outlineWidth;
-
         return cachedOutline;
     }
-
-    /**
-     * Two-pass chamfer (3-4) distance transform on the alpha mask, then threshold at radius
-     * with a soft band for anti-aliasing. Result is the dilated alpha mask with crisp,
-     * approximately-circular outline.
-     */
-    private static int[] dilateByDistance(int[] alphas, int w, int h, int radius) {
-        int infinity = Integer.MAX_VALUE / 2;
-        int[] dist = new int[w * h];
-        for (int i = 0; i < dist.length; i++) {
-            dist[i] = alphas[i] >= 128 ? 0 : infinity;
-        }
-
-        // Forward pass: top-left to bottom-right.
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int idx = y * w + x;
-                int d = dist[idx];
-                if (d == 0) continue;
-                if (x > 0) {
-                    int v = dist[idx - 1] + STRAIGHT;
-                    if (v < d) d = v;
-                }
-                if (y > 0) {
-                    int v = dist[idx - w] + STRAIGHT;
-                    if (v < d) d = v;
-                    if (x > 0) {
-                        int dl = dist[idx - w - 1] + DIAGONAL;
-                        if (dl < d) d = dl;
-                    }
-                    if (x < w - 1) {
-                        int dr = dist[idx - w + 1] + DIAGONAL;
-                        if (dr < d) d = dr;
-                    }
-                }
-                dist[idx] = d;
-            }
-        }
-
-        // Backward pass: bottom-right to top-left.
-        for (int y = h - 1; y >= 0; y--) {
-            for (int x = w - 1; x >= 0; x--) {
-                int idx = y * w + x;
-                int d = dist[idx];
-                if (d == 0) continue;
-                if (x < w - 1) {
-                    int v = dist[idx + 1] + STRAIGHT;
-                    if (v < d) d = v;
-                }
-                if (y < h - 1) {
-                    int v = dist[idx + w] + STRAIGHT;
-                    if (v < d) d = v;
-                    if (x > 0) {
-                        int dl = dist[idx + w - 1] + DIAGONAL;
-                        if (dl < d) d = dl;
-                    }
-                    if (x < w - 1) {
-                        int dr = dist[idx + w + 1] + DIAGONAL;
-                        if (dr < d) d = dr;
-                    }
-                }
-                dist[idx] = d;
-            }
-        }
-
-        int maxDist = radius * STRAIGHT;
-        int[] result = new int[w * h];
-        for (int i = 0; i < result.length; i++) {
-            int d = dist[i];
-            if (d <= maxDist) {
-                result[i] = 0xFF;
-            } else if (d <= maxDist + AA_BAND) {
-                int a = 0xFF - (d - maxDist) * 0xFF / AA_BAND;
-                result[i] = Math.max(0, Math.min(0xFF, a));
-            }
-        }
-        return result;
-    }
 }
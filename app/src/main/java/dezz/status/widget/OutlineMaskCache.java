@@ -0,0 +1,263 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide LRU of icon outline masks (ALPHA_8, see {@link IconOutlines#fromRendering}).
+ *
+ * Every Wi-Fi / GNSS / Bluetooth state flip swaps the icon drawable, and the outline used to be
+ * rebuilt from scratch each time. Icons cycle through a handful of states, so after the first
+ * round every flip is a hit here. Keyed by drawable resource, box size, horizontal inset,
+ * outline width and density — the resource id already identifies the icon design, as every
+ * design ships its own drawables.
+ *
+ * Masks are built on a single background thread — the distance transform of a 100sp icon is
+ * too slow for a draw pass. {@link #request} returns what's cached and queues the rest; the
+ * waiting views are invalidated once their mask lands. {@link #prewarm} queues every state of
+ * an icon so later state flips never wait. The worker checks {@link OutlineMaskStore} before
+ * building, so after a reboot masks come back from disk.
+ *
+ * Evicted masks are not recycled: a view may still be drawing one it looked up earlier. The
+ * cache itself is touched on the main thread only.
+ */
+final class OutlineMaskCache {
+    /** Roughly two dozen 100sp masks at xhdpi. */
+    static final int DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+
+    private static final String TAG = "OutlineMaskCache";
+
+    private static final class Key {
+        int resId;
+        int width;
+        int height;
+        int insetX;
+        int outlineWidth;
+        int densityDpi;
+
+        Key() {
+        }
+
+        Key(Key other) {
+            resId = other.resId;
+            width = other.width;
+            height = other.height;
+            insetX = other.insetX;
+            outlineWidth = other.outlineWidth;
+            densityDpi = other.densityDpi;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return resId == k.resId && width == k.width && height == k.height
+                    && insetX == k.insetX && outlineWidth == k.outlineWidth && densityDpi == k.densityDpi;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = resId;
+            h = 31 * h + width;
+            h = 31 * h + height;
+            h = 31 * h + insetX;
+            h = 31 * h + outlineWidth;
+            h = 31 * h + densityDpi;
+            return h;
+        }
+    }
+
+    private static final LruCache<Key, Bitmap> cache = new LruCache<>(DEFAULT_MAX_BYTES) {
+        @Override
+        protected int sizeOf(@NonNull Key key, @NonNull Bitmap value) {
+            return value.getAllocationByteCount();
+        }
+    };
+    // Reused for lookups so a hit allocates nothing.
+    private static final Key probe = new Key();
+
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "OutlineMasks");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    /** Worker thread only. */
+    @Nullable private static OutlineMaskStore store;
+    /** Masks queued on {@link #worker}, with the views to invalidate when each is ready. */
+    private static final HashMap<Key, ArrayList<View>> pending = new HashMap<>();
+
+    /**
+     * Mask of icon {@code resId} drawn FIT_CENTER into a {@code width}×{@code height} box with
+     * {@code insetX} padding left and right — what {@link OutlineImageView} and the icon bricks
+     * of {@link StatusWidgetView} show. Returns {@code null} if it isn't built yet; the build is
+     * queued and {@code waiter}, if given, is invalidated when it completes.
+     */
+    @Nullable
+    static Bitmap request(@NonNull Context context, int resId, int width, int height, int insetX,
+                          int outlineWidth, @Nullable View waiter) {
+        if (resId == 0 || width <= 0 || height <= 0 || outlineWidth <= 0) return null;
+        int densityDpi = context.getResources().getDisplayMetrics().densityDpi;
+        setProbe(resId, width, height, insetX, outlineWidth, densityDpi);
+        Bitmap mask = cache.get(probe);
+        if (mask != null) return mask;
+
+        ArrayList<View> waiters = pending.get(probe);
+        if (waiters == null) {
+            Key key = new Key(probe);
+            waiters = new ArrayList<>();
+            pending.put(key, waiters);
+            Context appContext = context.getApplicationContext();
+            worker.execute(() -> {
+                Bitmap built = loadOrBuild(appContext, resId, width, height, insetX, outlineWidth,
+                        densityDpi);
+                mainHandler.post(() -> {
+                    ArrayList<View> views = pending.remove(key);
+                    if (built != null) {
+                        cache.put(key, built);
+                    }
+                    if (views != null) {
+                        for (View v : views) {
+                            v.invalidate();
+                        }
+                    }
+                });
+            });
+        }
+        if (waiter != null && !waiters.contains(waiter)) {
+            waiters.add(waiter);
+        }
+        return null;
+    }
+
+    /**
+     * Queues masks for all {@code resIds} that aren't cached or pending yet. Icons outlined from
+     * their vector paths ({@link VectorOutlines}) never need one and are skipped.
+     */
+    static void prewarm(@NonNull Context context, @NonNull int[] resIds, int width, int height,
+                        int insetX, int outlineWidth) {
+        for (int resId : resIds) {
+            VectorOutlines.Shape shape = VectorOutlines.request(context, resId, null);
+            if (shape == VectorOutlines.NONE) {
+                request(context, resId, width, height, insetX, outlineWidth, null);
+            } else if (shape == null) {
+                // The shape is being parsed on the worker. Queue behind it: the worker and the
+                // main looper both run in order, so the shape is published by the time this
+                // check runs.
+                worker.execute(() -> mainHandler.post(() -> {
+                    if (VectorOutlines.request(context, resId, null) == VectorOutlines.NONE) {
+                        request(context, resId, width, height, insetX, outlineWidth, null);
+                    }
+                }));
+            }
+        }
+    }
+
+    /** Runs {@code task} on the mask worker, after everything queued before it. */
+    static void execute(@NonNull Runnable task) {
+        worker.execute(task);
+    }
+
+    /** Worker thread: the on-disk copy if there is one, otherwise a fresh build saved to disk. */
+    @Nullable
+    private static Bitmap loadOrBuild(Context context, int resId, int width, int height, int insetX,
+                                      int outlineWidth, int densityDpi) {
+        if (store == null) {
+            store = new OutlineMaskStore(context);
+        }
+        Bitmap mask = store.load(resId, width, height, insetX, outlineWidth, densityDpi);
+        if (mask != null) return mask;
+        mask = build(context, resId, width, height, insetX, outlineWidth);
+        if (mask != null) {
+            store.save(resId, densityDpi, insetX, outlineWidth, mask);
+        }
+        return mask;
+    }
+
+    /** Worker thread. */
+    @Nullable
+    private static Bitmap build(Context context, int resId, int width, int height, int insetX,
+                                int outlineWidth) {
+        try {
+            Drawable drawable = ContextCompat.getDrawable(context, resId);
+            if (drawable == null) return null;
+            drawable = drawable.mutate();
+            IconOutlines.fitCenter(drawable, width, height, insetX);
+            Bitmap rendered = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            drawable.draw(new Canvas(rendered));
+            Bitmap mask = IconOutlines.fromRendering(rendered, outlineWidth);
+            rendered.recycle();
+            return mask;
+        } catch (Throwable t) {
+            Log.w(TAG, "Failed to build outline mask for resource " + resId, t);
+            return null;
+        }
+    }
+
+    private static void setProbe(int resId, int width, int height, int insetX, int outlineWidth,
+                                 int densityDpi) {
+        probe.resId = resId;
+        probe.width = width;
+        probe.height = height;
+        probe.insetX = insetX;
+        probe.outlineWidth = outlineWidth;
+        probe.densityDpi = densityDpi;
+    }
+
+    /** Changes the byte budget, evicting least recently used masks if it shrank. */
+    static void setMaxBytes(int maxBytes) {
+        cache.resize(maxBytes);
+    }
+
+    static int hitCount() {
+        return cache.hitCount();
+    }
+
+    static int missCount() {
+        return cache.missCount();
+    }
+
+    static int sizeBytes() {
+        return cache.size();
+    }
+
+    static void clear() {
+        cache.evictAll();
+    }
+
+    private OutlineMaskCache() {}
+}
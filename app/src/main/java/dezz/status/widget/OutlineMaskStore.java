@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * On-disk copy of {@link OutlineMaskCache}: head units cold-boot on every ignition, and without
+ * this every icon state would go through the distance transform again after each boot.
+ *
+ * One raw file per mask — {@code width * height} alpha bytes, nothing else — in the
+ * device-protected cache dir so it's readable at LOCKED_BOOT_COMPLETED. Files live in one
+ * directory per screen density inside a directory named after the app version code. Some head
+ * units flip density when the reverse camera or split screen starts, so the other densities are
+ * kept; only directories of other version codes are deleted, once, when the store opens.
+ *
+ * Every size, inset and outline width is a different file, so a session of slider dragging
+ * leaves a trail of them. Each density directory has a byte budget: a save that goes over it
+ * deletes the least recently used files, by modification time, which a load refreshes.
+ *
+ * Worker thread only (see {@link OutlineMaskCache}).
+ */
+final class OutlineMaskStore {
+    private static final String TAG = "OutlineMaskStore";
+    private static final String ROOT_DIR = "outline_masks";
+    /** Per density directory. About twice what {@link OutlineMaskCache} keeps in memory. */
+    static final long MAX_DIR_BYTES = 2L * OutlineMaskCache.DEFAULT_MAX_BYTES;
+
+    private final File root;
+    private final long versionCode;
+    @Nullable private File versionDir;
+    @Nullable private File dir;
+    private int dirDensityDpi;
+    /** Bytes in {@link #dir}. */
+    private long dirBytes;
+    /** Row-padded pixels on their way between a file and a bitmap; grown as needed. */
+    private ByteBuffer scratch = ByteBuffer.allocate(0);
+
+    OutlineMaskStore(@NonNull Context context) {
+        Context deviceContext = context.getApplicationContext().createDeviceProtectedStorageContext();
+        root = new File(deviceContext.getCacheDir(), ROOT_DIR);
+        long code;
+        try {
+            code = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0).getLongVersionCode();
+        } catch (PackageManager.NameNotFoundException e) {
+            code = 0;
+        }
+        versionCode = code;
+    }
+
+    /**
+     * Reads the stored mask into an ALPHA_8 bitmap, or returns {@code null} if there is none.
+     * Rows are read straight to their padded offsets in {@link #scratch}, so the only
+     * allocation is the bitmap itself.
+     */
+    @Nullable
+    Bitmap load(int resId, int width, int height, int insetX, int outlineWidth, int densityDpi) {
+        File file = fileFor(resId, width, height, insetX, outlineWidth, densityDpi);
+        if (file == null || !file.isFile()) return null;
+        try (FileInputStream in = new FileInputStream(file);
+             FileChannel channel = in.getChannel()) {
+            if (channel.size() != (long) width * height) {
+                // Truncated write or foreign file.
+                forget(file);
+                return null;
+            }
+            Bitmap mask = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+            int rowBytes = mask.getRowBytes();
+            ByteBuffer pixels = scratch(rowBytes * height);
+            for (int y = 0; y < height; y++) {
+                window(pixels, y * rowBytes, y * rowBytes + width);
+                while (pixels.hasRemaining()) {
+                    if (channel.read(pixels) < 0) throw new IOException("Short read");
+                }
+            }
+            window(pixels, 0, rowBytes * height);
+            mask.copyPixelsFromBuffer(pixels);
+            // Recently used: pruning goes by modification time.
+            file.setLastModified(System.currentTimeMillis());
+            return mask;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to load " + file, e);
+            forget(file);
+            return null;
+        }
+    }
+
+    void save(int resId, int densityDpi, int insetX, int outlineWidth, @NonNull Bitmap mask) {
+        int width = mask.getWidth();
+        int height = mask.getHeight();
+        File file = fileFor(resId, width, height, insetX, outlineWidth, densityDpi);
+        if (file == null) return;
+        int rowBytes = mask.getRowBytes();
+        ByteBuffer pixels = scratch(rowBytes * height);
+        mask.copyPixelsToBuffer(pixels);
+        // Write aside and rename, so a power cut mid-write never leaves a short file in place.
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp);
+             FileChannel channel = out.getChannel()) {
+            for (int y = 0; y < height; y++) {
+                window(pixels, y * rowBytes, y * rowBytes + width);
+                while (pixels.hasRemaining()) {
+                    channel.write(pixels);
+                }
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to save " + file, e);
+            tmp.delete();
+            return;
+        }
+        long replaced = file.length();
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        dirBytes += (long) width * height - replaced;
+        if (dirBytes > MAX_DIR_BYTES) {
+            prune();
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the directory is down to three quarters of
+     * its budget, so the next few saves don't prune again.
+     */
+    private void prune() {
+        File[] files = dir != null ? dir.listFiles() : null;
+        if (files == null) return;
+        long[] modified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        long total = 0;
+        for (int i = 0; i < files.length; i++) {
+            // Read once: the sort must not see times change under it.
+            modified[i] = files[i].lastModified();
+            order[i] = i;
+            total += files[i].length();
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> modified[i]));
+        long target = MAX_DIR_BYTES * 3 / 4;
+        for (int i = 0; i < order.length && total > target; i++) {
+            File f = files[order[i]];
+            long length = f.length();
+            if (f.delete()) total -= length;
+        }
+        dirBytes = total;
+    }
+
+    private void forget(File file) {
+        long length = file.length();
+        if (file.delete() && file.getParentFile() != null && file.getParentFile().equals(dir)) {
+            dirBytes -= length;
+        }
+    }
+
+    private ByteBuffer scratch(int capacity) {
+        if (scratch.capacity() < capacity) {
+            scratch = ByteBuffer.allocate(capacity);
+        }
+        window(scratch, 0, capacity);
+        return scratch;
+    }
+
+    /** Through {@link Buffer}: the covariant ByteBuffer overloads are missing on older releases. */
+    private static void window(Buffer buffer, int position, int limit) {
+        buffer.limit(limit);
+        buffer.position(position);
+    }
+
+    @Nullable
+    private File fileFor(int resId, int width, int height, int insetX, int outlineWidth,
+                         int densityDpi) {
+        File d = openDir(densityDpi);
+        if (d == null) return null;
+        return new File(d, Integer.toHexString(resId) + "_" + width + "x" + height
+                + "_" + insetX + "_" + outlineWidth);
+    }
+
+    @Nullable
+    private File openDir(int densityDpi) {
+        if (dir != null && dirDensityDpi == densityDpi) return dir;
+        if (versionDir == null) {
+            File v = new File(root, "v" + versionCode);
+            File[] stale = root.listFiles();
+            if (stale != null) {
+                for (File f : stale) {
+                    if (!f.equals(v)) deleteRecursively(f);
+                }
+            }
+            versionDir = v;
+        }
+        File d = new File(versionDir, densityDpi + "dpi");
+        if (!d.isDirectory() && !d.mkdirs()) {
+            Log.w(TAG, "Cannot create " + d);
+            return null;
+        }
+        dir = d;
+        dirDensityDpi = densityDpi;
+        dirBytes = 0;
+        File[] files = d.listFiles();
+        if (files != null) {
+            for (File f : files) dirBytes += f.length();
+        }
+        return dir;
+    }
+
+    private static void deleteRecursively(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) deleteRecursively(c);
+        }
+        f.delete();
+    }
+}
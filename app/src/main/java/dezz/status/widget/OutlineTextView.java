@@ -18,32 +18,71 @@
 package dezz.status.widget;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.text.Layout;
 import android.text.TextPaint;
 import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.animation.AnimationUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatTextView;
 
+import java.util.Objects;
+
 public class OutlineTextView extends AppCompatTextView {
     private static final float DEFAULT_OUTLINE_WIDTH = 0F;
 
+    /** Larger layers aren't worth the memory — draw the two passes directly instead. */
+    static final int MAX_LAYER_PIXELS = 4096 * 256;
+
     private boolean isDrawing = false;
     private int outlineColor = 0;
     private float outlineWidth = DEFAULT_OUTLINE_WIDTH;
 
+    // Stroke + fill rendering of the current layout. Single-line text keeps its BoringLayout
+    // across setText / setTypeface / setTextSize, so the Layout instance alone says nothing:
+    // text changes mark the layer stale, and the paint and width it was drawn with are part of
+    // the key. A stale layer's bitmap is redrawn in place when the new rendering fits its
+    // allocation, so a ticking clock doesn't allocate a bitmap per tick.
+    @Nullable private Bitmap layer;
+    private final Canvas layerCanvas = new Canvas();
+    @Nullable private Layout layerLayout;
+    private int layerLayoutWidth;
+    @Nullable private Typeface layerTypeface;
+    private float layerTextSize;
+    private float layerLetterSpacing;
+    @Nullable private String layerFontFeatures;
+    private int layerTextColor;
+    private int layerOutlineColor;
+    private float layerOutlineWidth;
+    /** Layer pixel (0, 0) relative to the layout origin. */
+    private int layerLeft;
+    private int layerTop;
+    private final Paint layerPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private boolean marquee;
+    private final Marquee marqueeClock;
+    private boolean marqueeRunning = true;
+    private final Runnable marqueeTick = this::invalidate;
+
     public OutlineTextView(@NonNull Context context) {
-        super(context);
+        this(context, null);
     }
 
     public OutlineTextView(@NonNull Context context, @Nullable AttributeSet attrs) {
-        super(context, attrs);
+        this(context, attrs, android.R.attr.textViewStyle);
     }
 
     public OutlineTextView(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        marqueeClock = new Marquee(context);
     }
 
     public int getOutlineColor() {
@@ -51,8 +90,10 @@ public class OutlineTextView extends AppCompatTextView {
     }
 
     public void setOutlineColor(int color) {
-        this.outlineColor = color;
-        invalidate();
+        if (this.outlineColor != color) {
+            this.outlineColor = color;
+            invalidate();
+        }
     }
 
     public float getOutlineWidth() {
@@ -60,10 +101,80 @@ public class OutlineTextView extends AppCompatTextView {
     }
 
     public void setOutlineWidth(float outlineWidth) {
-        this.outlineWidth = outlineWidth;
+        if (this.outlineWidth != outlineWidth) {
+            this.outlineWidth = outlineWidth;
+            invalidate();
+        }
+    }
+
+    /**
+     * Single-line text that scrolls horizontally when it doesn't fit. Replaces the framework
+     * {@code ellipsize="marquee"}: that one re-runs the whole text draw at a new offset every
+     * frame, while this one just slides the cached outline layer, at {@link #setMarqueeFps}.
+     */
+    public void setMarquee(boolean marquee) {
+        if (this.marquee == marquee) return;
+        this.marquee = marquee;
+        if (marquee) {
+            setSingleLine(true);
+            setEllipsize(null);
+            setHorizontallyScrolling(true);
+            marqueeClock.restart();
+        } else {
+            removeCallbacks(marqueeTick);
+        }
         invalidate();
     }
 
+    /** Redraw rate of the scrolling text; the framework marquee runs at the display rate. */
+    public void setMarqueeFps(int fps) {
+        if (marqueeClock.setFps(fps) && marquee) {
+            invalidate();
+        }
+    }
+
+    public boolean isMarquee() {
+        return marquee;
+    }
+
+    @Override
+    protected void onTextChanged(CharSequence text, int start, int lengthBefore, int lengthAfter) {
+        super.onTextChanged(text, start, lengthBefore, lengthAfter);
+        invalidateLayer();
+        // New text scrolls from its start again, after the usual delay. Called from the
+        // super constructor, before the clock exists.
+        if (marqueeClock != null) {
+            marqueeClock.restart();
+        }
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        setMarqueeRunning(isVisible);
+    }
+
+    @Override
+    public void onScreenStateChanged(int screenState) {
+        super.onScreenStateChanged(screenState);
+        setMarqueeRunning(screenState == SCREEN_STATE_ON && isShown());
+    }
+
+    /**
+     * Hidden or with the screen off, no tick is posted at all; scrolling starts over from the
+     * text start once the view is seen again.
+     */
+    private void setMarqueeRunning(boolean running) {
+        if (marqueeRunning == running) return;
+        marqueeRunning = running;
+        if (running) {
+            marqueeClock.restart();
+            invalidate();
+        } else {
+            removeCallbacks(marqueeTick);
+        }
+    }
+
     @Override
     public void invalidate() {
         if (!isDrawing) {
@@ -71,13 +182,181 @@ public class OutlineTextView extends AppCompatTextView {
         }
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(marqueeTick);
+        releaseLayer();
+    }
+
     @Override
     public void onDraw(Canvas canvas) {
-        if (outlineWidth <= 0) {
+        if (outlineWidth <= 0 && !marquee) {
             super.onDraw(canvas);
             return;
         }
+        Layout layout = getLayout();
+        Bitmap cached = layout != null && hasNoCompoundDrawables() ? obtainLayer(layout) : null;
+        if (cached == null) {
+            drawTwoPass(canvas);
+            return;
+        }
+
+        int boxLeft = getCompoundPaddingLeft();
+        int boxRight = getWidth() - getCompoundPaddingRight();
+        int available = boxRight - boxLeft;
+        int textWidth = cached.getWidth() - 2 * layerPad();
+        float x;
+        if (layout.getWidth() <= available) {
+            // Layout already sized to the box: line positions include the gravity.
+            x = boxLeft + layerLeft;
+        } else {
+            // Horizontally scrolling layout is "very wide" — place the text by gravity ourselves.
+            int gravity = Gravity.getAbsoluteGravity(getGravity(), getLayoutDirection())
+                    & Gravity.HORIZONTAL_GRAVITY_MASK;
+            int slack = Math.max(0, available - textWidth);
+            int offset = gravity == Gravity.RIGHT ? slack
+                    : gravity == Gravity.CENTER_HORIZONTAL ? slack / 2 : 0;
+            x = boxLeft + offset - layerPad();
+        }
+        float y = getExtendedPaddingTop() + verticalOffset(layout) + layerTop;
 
+        if (!marquee || textWidth <= available) {
+            canvas.drawBitmap(cached, x, y, layerPaint);
+            return;
+        }
+
+        int save = canvas.save();
+        canvas.clipRect(boxLeft, 0, boxRight, getHeight());
+        float gap = available / 3F;
+        float period = textWidth + gap;
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        float offset = marqueeClock.offset(now, period);
+        canvas.drawBitmap(cached, x - offset, y, layerPaint);
+        canvas.drawBitmap(cached, x - offset + period, y, layerPaint);
+        canvas.restoreToCount(save);
+        if (marqueeRunning) {
+            removeCallbacks(marqueeTick);
+            postDelayed(marqueeTick, marqueeClock.nextFrameDelay(now, period));
+        }
+    }
+
+    private boolean hasNoCompoundDrawables() {
+        for (Drawable d : getCompoundDrawablesRelative()) {
+            if (d != null) return false;
+        }
+        for (Drawable d : getCompoundDrawables()) {
+            if (d != null) return false;
+        }
+        return true;
+    }
+
+    private int layerPad() {
+        return (int) Math.ceil(outlineWidth);
+    }
+
+    /** Same vertical placement as TextView applies to its layout. */
+    private int verticalOffset(Layout layout) {
+        int gravity = getGravity() & Gravity.VERTICAL_GRAVITY_MASK;
+        if (gravity == Gravity.TOP) return 0;
+        int boxHeight = getMeasuredHeight() - getExtendedPaddingTop() - getExtendedPaddingBottom();
+        int textHeight = layout.getHeight();
+        if (textHeight >= boxHeight) return 0;
+        return gravity == Gravity.BOTTOM ? boxHeight - textHeight : (boxHeight - textHeight) >> 1;
+    }
+
+    @Nullable
+    private Bitmap obtainLayer(@NonNull Layout layout) {
+        int textColor = getCurrentTextColor();
+        TextPaint paint = getPaint();
+        if (layer != null && layerLayout == layout && layerLayoutWidth == layout.getWidth()
+                && layerTypeface == paint.getTypeface() && layerTextSize == paint.getTextSize()
+                && layerLetterSpacing == paint.getLetterSpacing()
+                && Objects.equals(layerFontFeatures, paint.getFontFeatureSettings())
+                && layerTextColor == textColor
+                && layerOutlineColor == outlineColor && layerOutlineWidth == outlineWidth) {
+            return layer;
+        }
+
+        float left = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        for (int i = 0; i < layout.getLineCount(); i++) {
+            left = Math.min(left, layout.getLineLeft(i));
+            right = Math.max(right, layout.getLineRight(i));
+        }
+        int pad = layerPad();
+        int lineLeft = layout.getLineCount() > 0 ? (int) Math.floor(left) : 0;
+        int width = (layout.getLineCount() > 0 ? (int) Math.ceil(right) - lineLeft : 0) + 2 * pad;
+        int height = layout.getHeight() + 2 * pad;
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_LAYER_PIXELS) {
+            releaseLayer();
+            return null;
+        }
+
+        Bitmap bitmap = layer;
+        if (bitmap != null && bitmap.getAllocationByteCount() >= width * height * 4) {
+            if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+                bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+            }
+            bitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            releaseLayer();
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        Canvas c = layerCanvas;
+        c.setBitmap(bitmap);
+        int save = c.save();
+        c.translate(pad - lineLeft, pad);
+        int savedColor = paint.getColor();
+        paint.setAntiAlias(true);
+        if (outlineWidth > 0 && Color.alpha(outlineColor) > 0) {
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(outlineWidth);
+            paint.setColor(outlineColor);
+            layout.draw(c);
+            paint.setStyle(Paint.Style.FILL);
+        }
+        paint.setColor(textColor);
+        layout.draw(c);
+        paint.setColor(savedColor);
+        c.restoreToCount(save);
+        c.setBitmap(null);
+
+        layer = bitmap;
+        layerLayout = layout;
+        layerLayoutWidth = layout.getWidth();
+        layerTypeface = paint.getTypeface();
+        layerTextSize = paint.getTextSize();
+        layerLetterSpacing = paint.getLetterSpacing();
+        layerFontFeatures = paint.getFontFeatureSettings();
+        layerTextColor = textColor;
+        layerOutlineColor = outlineColor;
+        layerOutlineWidth = outlineWidth;
+        layerLeft = lineLeft - pad;
+        layerTop = -pad;
+        return layer;
+    }
+
+    /** Makes the next draw re-render the layer, into the same bitmap if it fits. */
+    private void invalidateLayer() {
+        layerLayout = null;
+        layerTypeface = null;
+    }
+
+    private void releaseLayer() {
+        if (layer != null) {
+            layer.recycle();
+            layer = null;
+        }
+        invalidateLayer();
+    }
+
+    /** Uncached path for layouts the layer can't represent (compound drawables, huge text). */
+    private void drawTwoPass(Canvas canvas) {
+        if (outlineWidth <= 0) {
+            super.onDraw(canvas);
+            return;
+        }
         int textColor = getCurrentTextColor();
         isDrawing = true;
         try {
@@ -98,4 +377,4 @@ public class OutlineTextView extends AppCompatTextView {
             isDrawing = false;
         }
     }
-}
\ No newline at end of file
+}
@@ -73,13 +73,24 @@ public class Permissions {
     }
 
     public static boolean isNotificationAccessGranted(Context context) {
+        return isComponentEnabled(context, "enabled_notification_listeners",
+                MediaNotificationListener.class);
+    }
+
+    /** Whether {@link ForegroundAccessibilityService} is switched on in the accessibility settings. */
+    public static boolean isAccessibilityServiceEnabled(Context context) {
+        return isComponentEnabled(context, Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES,
+                ForegroundAccessibilityService.class);
+    }
+
+    /** Looks for our {@code serviceClass} in a colon-separated component list secure setting. */
+    private static boolean isComponentEnabled(Context context, String setting, Class<?> serviceClass) {
         try {
-            String enabled = Settings.Secure.getString(context.getContentResolver(),
-                    "enabled_notification_listeners");
+            String enabled = Settings.Secure.getString(context.getContentResolver(), setting);
             if (TextUtils.isEmpty(enabled)) {
                 return false;
             }
-            ComponentName component = new ComponentName(context, MediaNotificationListener.class);
+            ComponentName component = new ComponentName(context, serviceClass);
             String flatten = component.flattenToString();
             for (String name : enabled.split(":")) {
                 if (flatten.equals(name) || component.equals(ComponentName.unflattenFromString(name))) {
@@ -165,6 +165,16 @@ public class Preferences {
         }
     }
 
+    /** Time brick — adds the seconds toggle. */
+    public static final class TimeBrickPrefs extends TextBrickPrefs {
+        public final Bool showSeconds;
+
+        public TimeBrickPrefs(Preferences p) {
+            super(p, "time", 60);
+            showSeconds = new Bool(p, "timeShowSeconds", false);
+        }
+    }
+
     /** Date brick — date number, day of week, formatting and ordering options. */
     public static final class DateBrickPrefs extends TextBrickPrefs {
         public final Bool showDate;
@@ -192,12 +202,15 @@ public class Preferences {
         public final Int alignment;
         /** Whether to show the app-name line above the track title. */
         public final Bool showSource;
+        /** Redraw rate of the scrolling title and app name, in frames per second. */
+        public final Int marqueeFps;
 
         public MediaBrickPrefs(Preferences p) {
             super(p, "media", 20);
             maxWidth = new Int(p, "mediaMaxWidth", 500);
             alignment = new Int(p, "mediaAlignment", 0);
             showSource = new Bool(p, "mediaShowSource", true);
+            marqueeFps = new Int(p, "mediaMarqueeFps", Marquee.DEFAULT_FPS);
         }
     }
 
@@ -239,10 +252,19 @@ public class Preferences {
     /** GPS brick adds the satellite-count badge toggle. */
     public static final class GpsBrickPrefs extends IconBrickPrefs {
         public final Bool showSatelliteBadge;
+        /** Seconds without a location fix before the icon turns BAD. */
+        public final Int badAfterSeconds;
+        /** Seconds without a location fix before the icon turns OFF; never before BAD. */
+        public final Int offAfterSeconds;
+        /** A fix counts as GOOD when its accuracy is better than this many metres. */
+        public final Int goodAccuracyMeters;
 
         public GpsBrickPrefs(Preferences p) {
             super(p, "gps");
             showSatelliteBadge = new Bool(p, "gpsShowSatelliteBadge", true);
+            badAfterSeconds = new Int(p, "gpsBadAfterSeconds", 5);
+            offAfterSeconds = new Int(p, "gpsOffAfterSeconds", 10);
+            goodAccuracyMeters = new Int(p, "gpsGoodAccuracyMeters", 20);
         }
     }
 
@@ -263,6 +285,10 @@ public class Preferences {
     public final Bool widgetAlignRight = new Bool(this, "widgetAlignRight", false);
     /** 0 = floating overlay (current behaviour), 1 = full-width status bar at the top. */
     public final Int widgetMode = new Int(this, "widgetMode", 0);
+    /** 0 = one view per brick, 1 = single custom-drawn {@link StatusWidgetView}. */
+    public final Int renderMode = new Int(this, "renderMode", 0);
+    /** Status-bar mode: one content-sized window per alignment group instead of a full-width one. */
+    public final Bool statusBarSplitWindows = new Bool(this, "statusBarSplitWindows", false);
     public final Int iconDesign = new Int(this, "iconDesign", 0);
     public final Int iconStyle = new Int(this, "iconStyle", 0);
     /** 0 = follow system, 1 = always light, 2 = always dark, 3 = inverse of system. */
@@ -271,6 +297,10 @@ public class Preferences {
     public final Int backgroundCornerRadius = new Int(this, "backgroundCornerRadius", 100);
     public final Int overlayX = new Int(this, "overlayX", 200);
     public final Int overlayY = new Int(this, "overlayY", 300);
+    /** Drag release: stick to a screen edge when released close to it. */
+    public final Bool dragSnapEdges = new Bool(this, "dragSnapEdges", false);
+    /** Drag release: round the position to this many pixels; 0 = off. */
+    public final Int dragSnapGrid = new Int(this, "dragSnapGrid", 0);
     /** Padding inside the widget container on each side, in px. */
     public final Int paddingLeft = new Int(this, "paddingLeft", 40);
     public final Int paddingTop = new Int(this, "paddingTop", 0);
@@ -288,7 +318,7 @@ public class Preferences {
     public final Bool mediaEnabled = new Bool(this, "mediaEnabled", false);
 
     // Per-brick settings.
-    public final TextBrickPrefs time = new TextBrickPrefs(this, "time", 60);
+    public final TimeBrickPrefs time = new TimeBrickPrefs(this);
     public final DateBrickPrefs date = new DateBrickPrefs(this);
     public final MediaBrickPrefs media = new MediaBrickPrefs(this);
     public final IconBrickPrefs wifi = new IconBrickPrefs(this, "wifi");
@@ -377,12 +407,33 @@ public class Preferences {
         return type;
     }
 
+    /** True if the widget or any brick has a non-empty hide-in-apps list in effect. */
+    public boolean anyHideListInUse() {
+        if (!hideInPackages.get().isEmpty()) return true;
+        for (BrickType type : BrickType.values()) {
+            if (!hideListFor(effectiveHideSourceFor(type)).get().isEmpty()) return true;
+        }
+        return false;
+    }
+
     public Preferences(Context context) {
         final Context deviceContext = context.getApplicationContext().createDeviceProtectedStorageContext();
         prefs = deviceContext.getSharedPreferences(context.getPackageName() + "_preferences", Context.MODE_PRIVATE);
         migrateLegacyPrefsIfNeeded();
     }
 
+    /**
+     * Subscribes to changes of any stored preference. {@link SharedPreferences} only keeps a weak
+     * reference to the listener, so the caller must hold on to it.
+     */
+    public void registerChangeListener(@NonNull SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        prefs.registerOnSharedPreferenceChangeListener(listener);
+    }
+
+    public void unregisterChangeListener(@NonNull SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        prefs.unregisterOnSharedPreferenceChangeListener(listener);
+    }
+
     /**
      * Wipes all stored preferences. Defaults take over on next read.
      * Uses {@link android.content.SharedPreferences.Editor#commit()} (synchronous) instead of
@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable copy of every {@link Preferences} value the widget service reads. Each
+ * {@code get()} on a preference is a SharedPreferences map lookup (and
+ * {@link Preferences.StringSet#get()} a fresh HashSet), which adds up on per-second ticks and
+ * media callbacks. The service builds one of these per preference change and reads only from it.
+ *
+ * Hide lists are stored already resolved through {@link Preferences#effectiveHideSourceFor}, so
+ * callers never need to follow the inheritance chain themselves.
+ */
+public final class PreferencesSnapshot {
+    /** Values of {@link Preferences.TextBrickPrefs}. */
+    public static class TextBrick {
+        public final int fontSize;
+        public final int outlineAlpha;
+        public final int outlineWidth;
+        public final int marginStart;
+        public final int marginEnd;
+        public final int adjustY;
+        public final String fontFamily;
+        public final boolean fontBold;
+        public final boolean fontItalic;
+        public final int statusAlignment;
+        public final boolean hideKeepsSpace;
+
+        TextBrick(Preferences.TextBrickPrefs p) {
+            fontSize = p.fontSize.get();
+            outlineAlpha = p.outlineAlpha.get();
+            outlineWidth = p.outlineWidth.get();
+            marginStart = p.marginStart.get();
+            marginEnd = p.marginEnd.get();
+            adjustY = p.adjustY.get();
+            fontFamily = p.fontFamily.get();
+            fontBold = p.fontBold.get();
+            fontItalic = p.fontItalic.get();
+            statusAlignment = p.statusAlignment.get();
+            hideKeepsSpace = p.hideKeepsSpace.get();
+        }
+    }
+
+    /** Values of {@link Preferences.TimeBrickPrefs}. */
+    public static final class TimeBrick extends TextBrick {
+        public final boolean showSeconds;
+
+        TimeBrick(Preferences.TimeBrickPrefs p) {
+            super(p);
+            showSeconds = p.showSeconds.get();
+        }
+    }
+
+    /** Values of {@link Preferences.DateBrickPrefs}. */
+    public static final class DateBrick extends TextBrick {
+        public final boolean showDate;
+        public final boolean showDayOfWeek;
+        public final boolean showFullName;
+        public final boolean dateBeforeDayOfWeek;
+        public final boolean oneLineLayout;
+        public final int alignment;
+
+        DateBrick(Preferences.DateBrickPrefs p) {
+            super(p);
+            showDate = p.showDate.get();
+            showDayOfWeek = p.showDayOfWeek.get();
+            showFullName = p.showFullName.get();
+            dateBeforeDayOfWeek = p.dateBeforeDayOfWeek.get();
+            oneLineLayout = p.oneLineLayout.get();
+            alignment = p.alignment.get();
+        }
+    }
+
+    /** Values of {@link Preferences.MediaBrickPrefs}. */
+    public static final class MediaBrick extends TextBrick {
+        public final int maxWidth;
+        public final int alignment;
+        public final boolean showSource;
+        public final int marqueeFps;
+
+        MediaBrick(Preferences.MediaBrickPrefs p) {
+            super(p);
+            maxWidth = p.maxWidth.get();
+            alignment = p.alignment.get();
+            showSource = p.showSource.get();
+            marqueeFps = p.marqueeFps.get();
+        }
+    }
+
+    /** Values of {@link Preferences.IconBrickPrefs}. */
+    public static class IconBrick {
+        public final int size;
+        public final int outlineAlpha;
+        public final int outlineWidth;
+        public final int marginStart;
+        public final int marginEnd;
+        public final int adjustY;
+        public final int statusAlignment;
+        public final boolean hideKeepsSpace;
+
+        IconBrick(Preferences.IconBrickPrefs p) {
+            size = p.size.get();
+            outlineAlpha = p.outlineAlpha.get();
+            outlineWidth = p.outlineWidth.get();
+            marginStart = p.marginStart.get();
+            marginEnd = p.marginEnd.get();
+            adjustY = p.adjustY.get();
+            statusAlignment = p.statusAlignment.get();
+            hideKeepsSpace = p.hideKeepsSpace.get();
+        }
+    }
+
+    /** Values of {@link Preferences.GpsBrickPrefs}. */
+    public static final class GpsBrick extends IconBrick {
+        public final boolean showSatelliteBadge;
+        public final int badAfterSeconds;
+        public final int offAfterSeconds;
+        public final int goodAccuracyMeters;
+
+        GpsBrick(Preferences.GpsBrickPrefs p) {
+            super(p);
+            showSatelliteBadge = p.showSatelliteBadge.get();
+            badAfterSeconds = p.badAfterSeconds.get();
+            offAfterSeconds = p.offAfterSeconds.get();
+            goodAccuracyMeters = p.goodAccuracyMeters.get();
+        }
+    }
+
+    /** Values of {@link Preferences.BluetoothBrickPrefs}. */
+    public static final class BluetoothBrick extends IconBrick {
+        public final boolean showDeviceCountBadge;
+
+        BluetoothBrick(Preferences.BluetoothBrickPrefs p) {
+            super(p);
+            showDeviceCountBadge = p.showDeviceCountBadge.get();
+        }
+    }
+
+    public final boolean widgetAlignRight;
+    public final int widgetMode;
+    public final int renderMode;
+    public final boolean statusBarSplitWindows;
+    public final int iconDesign;
+    public final int iconStyle;
+    public final int widgetTheme;
+    public final int backgroundAlpha;
+    public final int backgroundCornerRadius;
+    public final int overlayX;
+    public final int overlayY;
+    public final boolean dragSnapEdges;
+    public final int dragSnapGrid;
+    public final int paddingLeft;
+    public final int paddingTop;
+    public final int paddingRight;
+    public final int paddingBottom;
+    /** Apps over which the whole widget is hidden. Unmodifiable. */
+    public final Set<String> hideInPackages;
+
+    /** Bricks in display order. Unmodifiable. */
+    public final List<BrickType> brickOrder;
+    /** Same bricks as {@link #brickOrder}, for membership checks. Unmodifiable. */
+    public final Set<BrickType> bricks;
+
+    public final TimeBrick time;
+    public final DateBrick date;
+    public final MediaBrick media;
+    public final IconBrick wifi;
+    public final GpsBrick gps;
+    public final BluetoothBrick bluetooth;
+
+    private final EnumMap<BrickType, Set<String>> effectiveHideLists = new EnumMap<>(BrickType.class);
+    private final boolean anyBrickHasHideList;
+    private final HideIndex hideIndex;
+
+    public PreferencesSnapshot(@NonNull Preferences p) {
+        widgetAlignRight = p.widgetAlignRight.get();
+        widgetMode = p.widgetMode.get();
+        renderMode = p.renderMode.get();
+        statusBarSplitWindows = p.statusBarSplitWindows.get();
+        iconDesign = p.iconDesign.get();
+        iconStyle = p.iconStyle.get();
+        widgetTheme = p.widgetTheme.get();
+        backgroundAlpha = p.backgroundAlpha.get();
+        backgroundCornerRadius = p.backgroundCornerRadius.get();
+        overlayX = p.overlayX.get();
+        overlayY = p.overlayY.get();
+        dragSnapEdges = p.dragSnapEdges.get();
+        dragSnapGrid = p.dragSnapGrid.get();
+        paddingLeft = p.paddingLeft.get();
+        paddingTop = p.paddingTop.get();
+        paddingRight = p.paddingRight.get();
+        paddingBottom = p.paddingBottom.get();
+        // StringSet.get() already returns a private copy.
+        hideInPackages = Collections.unmodifiableSet(p.hideInPackages.get());
+
+        List<BrickType> order = BrickType.parseOrder(p.brickOrder.get());
+        brickOrder = Collections.unmodifiableList(order);
+        Set<BrickType> set = EnumSet.noneOf(BrickType.class);
+        set.addAll(order);
+        bricks = Collections.unmodifiableSet(set);
+
+        time = new TimeBrick(p.time);
+        date = new DateBrick(p.date);
+        media = new MediaBrick(p.media);
+        wifi = new IconBrick(p.wifi);
+        gps = new GpsBrick(p.gps);
+        bluetooth = new BluetoothBrick(p.bluetooth);
+
+        boolean anyList = false;
+        int keepSpace = 0;
+        for (BrickType type : BrickType.values()) {
+            BrickType source = p.effectiveHideSourceFor(type);
+            Set<String> list = Collections.unmodifiableSet(p.hideListFor(source).get());
+            effectiveHideLists.put(type, list);
+            anyList |= !list.isEmpty();
+            if (hideKeepsSpaceFor(type)) {
+                keepSpace |= HideIndex.bit(type);
+            }
+        }
+        anyBrickHasHideList = anyList;
+        hideIndex = HideIndex.build(hideInPackages, effectiveHideLists, keepSpace);
+    }
+
+    /** Hide-in-apps list in effect for the brick — its own or the one it inherits. Unmodifiable. */
+    @NonNull
+    public Set<String> hideListFor(BrickType type) {
+        Set<String> list = effectiveHideLists.get(type);
+        return list != null ? list : Collections.emptySet();
+    }
+
+    public boolean anyBrickHasHideList() {
+        return anyBrickHasHideList;
+    }
+
+    /** All hide-in-apps lists and keep-space flags, compiled for per-switch lookups. */
+    @NonNull
+    HideIndex hideIndex() {
+        return hideIndex;
+    }
+
+    public int statusAlignmentFor(BrickType type) {
+        switch (type) {
+            case TIME: return time.statusAlignment;
+            case DATE: return date.statusAlignment;
+            case MEDIA: return media.statusAlignment;
+            case WIFI: return wifi.statusAlignment;
+            case GPS: return gps.statusAlignment;
+            case BLUETOOTH: return bluetooth.statusAlignment;
+            default: throw new IllegalArgumentException("Unknown brick type: " + type);
+        }
+    }
+
+    public boolean hideKeepsSpaceFor(BrickType type) {
+        switch (type) {
+            case TIME: return time.hideKeepsSpace;
+            case DATE: return date.hideKeepsSpace;
+            case MEDIA: return media.hideKeepsSpace;
+            case WIFI: return wifi.hideKeepsSpace;
+            case GPS: return gps.hideKeepsSpace;
+            case BLUETOOTH: return bluetooth.hideKeepsSpace;
+            default: throw new IllegalArgumentException("Unknown brick type: " + type);
+        }
+    }
+}
@@ -0,0 +1,977 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RecordingCanvas;
+import android.graphics.RectF;
+import android.graphics.RenderNode;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The whole widget as a single custom-drawn view — the "single surface" rendering mode.
+ *
+ * The view-per-brick overlay is a LinearLayout of OutlineTextViews / OutlineImageViews with
+ * nested start/center/end groups and weight spacers, so a one-character change in the time text
+ * re-measures the whole tree. Here every brick is a lightweight record with a cached text layout
+ * or icon; the view lays them out in one pass and, when a brick's content changes without
+ * changing its size, redraws only that brick. With hardware rendering (API 29+) each brick is
+ * recorded into its own {@link RenderNode} and a redraw re-records just the changed ones — the
+ * hardware renderer ignores invalidate rects, so that's where the saving has to come from. In
+ * software the brick's rect is invalidated instead.
+ *
+ * Geometry mirrors the LinearLayout version so switching modes doesn't move anything: bricks are
+ * vertically centred, margins are horizontal only, {@code adjustY} is a translation, icons get
+ * the same horizontal inset and fit-centre scaling as {@link OutlineImageView}, and in status-bar
+ * mode the center group sits halfway between the start and end groups.
+ */
+public class StatusWidgetView extends View {
+
+    private abstract static class Brick {
+        int visibility = GONE;
+        boolean inOrder;
+        int statusAlignment;
+        int marginStart;
+        int marginEnd;
+        int adjustY;
+        /** Content box in view coordinates, before {@link #adjustY}. */
+        final Rect bounds = new Rect();
+        /** Recorded drawing at the origin; only touched through {@link BrickNodes}. */
+        @Nullable RenderNode node;
+        /** Content changed since {@link #node} was recorded. */
+        boolean dirty = true;
+        /** Set by {@link #draw} when it drew a stand-in (an outline mask still being built). */
+        boolean pending;
+        /** What the last {@link #draw} returned. */
+        boolean animating;
+
+        abstract int width();
+
+        abstract int height();
+
+        /** How far drawing may spill past {@link #bounds} (text outline strokes). */
+        int overdraw() {
+            return 0;
+        }
+
+        /** Draws the brick at the origin. Returns {@code true} if it needs another animation frame. */
+        abstract boolean draw(@NonNull Canvas canvas, long now);
+
+        boolean laidOut() {
+            return inOrder && visibility != GONE;
+        }
+    }
+
+    /** One cached text layout, drawn twice — outline stroke, then fill — like {@link OutlineTextView}. */
+    private static final class TextLine {
+        final TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        CharSequence text = "";
+        Layout.Alignment alignment = Layout.Alignment.ALIGN_NORMAL;
+        int textColor = Color.WHITE;
+        int outlineColor;
+        float outlineWidth;
+        Layout layout;
+        int width;
+        int height;
+        /** Reserved width, so text that changes daily keeps the brick size. */
+        int minWidth;
+        // Single-line text handed over as chars (the clock): drawn with drawText, so a tick
+        // needs neither a String nor a Layout. Used instead of text while charCount >= 0.
+        // Digits sit in fixed slots as wide as the widest digit, so the width never changes
+        // from tick to tick and a tick is a redraw without a layout pass.
+        char[] chars = new char[8];
+        int charCount = -1;
+        float[] charWidths = new float[8];
+        final Paint.FontMetricsInt metrics = new Paint.FontMetricsInt();
+        float digitSlot;
+        @Nullable Typeface slotTypeface;
+        float slotTextSize;
+        // Stroke + fill rendering for the marquee, which slides it instead of drawing the text
+        // twice per frame. Built on first use, dropped whenever text or style change.
+        @Nullable Bitmap layer;
+        int layerPad;
+
+        TextLine() {
+            rebuild();
+        }
+
+        void rebuild() {
+            releaseLayer();
+            if (charCount >= 0) {
+                if (paint.getTypeface() != slotTypeface || paint.getTextSize() != slotTextSize) {
+                    slotTypeface = paint.getTypeface();
+                    slotTextSize = paint.getTextSize();
+                    digitSlot = ClockFormatter.digitSlotWidth(paint);
+                }
+                if (charWidths.length < charCount) {
+                    charWidths = new float[chars.length];
+                }
+                paint.getTextWidths(chars, 0, charCount, charWidths);
+                float w = 0;
+                for (int i = 0; i < charCount; i++) {
+                    w += isDigit(chars[i]) ? digitSlot : charWidths[i];
+                }
+                width = Math.max(minWidth, (int) Math.ceil(w));
+                paint.getFontMetricsInt(metrics);
+                // Same box as a StaticLayout line with includePad.
+                height = metrics.bottom - metrics.top;
+                return;
+            }
+            width = Math.max(minWidth, (int) Math.ceil(Layout.getDesiredWidth(text, paint)));
+            layout = StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                    .setAlignment(alignment)
+                    .setIncludePad(true)
+                    .build();
+            height = layout.getHeight();
+        }
+
+        void draw(@NonNull Canvas canvas) {
+            if (outlineWidth > 0) {
+                paint.setStyle(Paint.Style.STROKE);
+                paint.setStrokeWidth(outlineWidth);
+                paint.setColor(outlineColor);
+                drawText(canvas);
+                paint.setStyle(Paint.Style.FILL);
+            }
+            paint.setColor(textColor);
+            drawText(canvas);
+        }
+
+        private void drawText(Canvas canvas) {
+            if (charCount < 0) {
+                layout.draw(canvas);
+                return;
+            }
+            float x = 0;
+            float baseline = -metrics.top;
+            for (int i = 0; i < charCount; i++) {
+                if (isDigit(chars[i])) {
+                    canvas.drawText(chars, i, 1, x + (digitSlot - charWidths[i]) / 2, baseline, paint);
+                    x += digitSlot;
+                } else {
+                    canvas.drawText(chars, i, 1, x, baseline, paint);
+                    x += charWidths[i];
+                }
+            }
+        }
+
+        /**
+         * Same as {@link #draw} from the cached layer; draws directly if the layer would be
+         * too big to be worth keeping.
+         */
+        void drawLayer(@NonNull Canvas canvas, @NonNull Paint bitmapPaint) {
+            if (layer == null) {
+                int pad = (int) Math.ceil(outlineWidth);
+                int w = width + 2 * pad;
+                int h = height + 2 * pad;
+                if (w <= 0 || h <= 0 || (long) w * h > OutlineTextView.MAX_LAYER_PIXELS) {
+                    draw(canvas);
+                    return;
+                }
+                layer = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+                layerPad = pad;
+                Canvas c = new Canvas(layer);
+                c.translate(pad, pad);
+                draw(c);
+            }
+            canvas.drawBitmap(layer, -layerPad, -layerPad, bitmapPaint);
+        }
+
+        void releaseLayer() {
+            if (layer != null) {
+                layer.recycle();
+                layer = null;
+            }
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+
+    private static final class TextBrick extends Brick {
+        final TextLine line = new TextLine();
+
+        @Override
+        int width() {
+            return line.width;
+        }
+
+        @Override
+        int height() {
+            return line.height;
+        }
+
+        @Override
+        int overdraw() {
+            return (int) Math.ceil(line.outlineWidth);
+        }
+
+        @Override
+        boolean draw(@NonNull Canvas canvas, long now) {
+            line.draw(canvas);
+            return false;
+        }
+    }
+
+    /**
+     * App-name line over the track line; each is capped at {@link #maxWidth} and marquees past it,
+     * sliding its cached layer at the {@link #marquee} frame rate.
+     */
+    private static final class MediaBrick extends Brick {
+        final TextLine source = new TextLine();
+        final TextLine title = new TextLine();
+        final Marquee marquee;
+        final Paint layerPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        boolean showSource = true;
+        int maxWidth = Integer.MAX_VALUE;
+        int alignment;
+        /** After a {@link #draw} that returned {@code true}: ms until the scroll moves again. */
+        long nextFrameDelay;
+
+        MediaBrick(Marquee marquee) {
+            this.marquee = marquee;
+        }
+
+        int visibleWidth(TextLine line) {
+            return Math.min(line.width, maxWidth);
+        }
+
+        @Override
+        int width() {
+            int w = visibleWidth(title);
+            return showSource ? Math.max(w, visibleWidth(source)) : w;
+        }
+
+        @Override
+        int height() {
+            return showSource ? source.height + title.height : title.height;
+        }
+
+        @Override
+        int overdraw() {
+            return (int) Math.ceil(title.outlineWidth);
+        }
+
+        @Override
+        boolean draw(@NonNull Canvas canvas, long now) {
+            nextFrameDelay = Long.MAX_VALUE;
+            int width = width();
+            int y = 0;
+            if (showSource) {
+                drawLine(canvas, source, width, y, now);
+                y += source.height;
+            }
+            drawLine(canvas, title, width, y, now);
+            return nextFrameDelay != Long.MAX_VALUE;
+        }
+
+        private void drawLine(Canvas canvas, TextLine line, int width, int y, long now) {
+            int visible = visibleWidth(line);
+            int x;
+            switch (alignment) {
+                case 1: x = (width - visible) / 2; break;
+                case 2: x = width - visible; break;
+                default: x = 0; break;
+            }
+            int save = canvas.save();
+            if (line.width <= maxWidth) {
+                line.releaseLayer();
+                canvas.translate(x, y);
+                line.draw(canvas);
+                canvas.restoreToCount(save);
+                return;
+            }
+            int pad = (int) Math.ceil(line.outlineWidth);
+            canvas.clipRect(x, y - pad, x + visible, y + line.height + pad);
+            float gap = maxWidth / 3F;
+            float period = line.width + gap;
+            canvas.translate(x - marquee.offset(now, period), y);
+            line.drawLayer(canvas, layerPaint);
+            canvas.translate(period, 0);
+            line.drawLayer(canvas, layerPaint);
+            canvas.restoreToCount(save);
+            nextFrameDelay = Math.min(nextFrameDelay, marquee.nextFrameDelay(now, period));
+        }
+    }
+
+    private final class IconBrick extends Brick {
+        int size;
+        int resId;
+        @Nullable Drawable drawable;
+        int tint;
+        int outlineColor = Color.TRANSPARENT;
+        int outlineWidth;
+        @Nullable Drawable badge;
+        @Nullable String badgeText;
+        int badgeBackgroundColor;
+        int badgeForegroundColor;
+
+        /** Last vector outline drawn; stands in while the current icon's shape is parsed. */
+        @Nullable VectorOutlines.Shape haloShape;
+        @Nullable Bitmap outline;
+        int outlineResId;
+        int outlineSize;
+        int outlineRadius;
+
+        @Override
+        int width() {
+            return size;
+        }
+
+        @Override
+        int height() {
+            return size;
+        }
+
+        void updateDrawableBounds() {
+            if (drawable != null) {
+                IconOutlines.fitCenter(drawable, size, size, iconPadding);
+            }
+        }
+
+        /** Mask for the current icon, or the previous one of the same size while it's being built. */
+        @Nullable
+        Bitmap outlineMask() {
+            if (drawable == null || size <= 0) return null;
+            if (outline != null && outlineResId == resId && outlineSize == size
+                    && outlineRadius == outlineWidth) {
+                return outline;
+            }
+            Bitmap mask = OutlineMaskCache.request(getContext(), resId, size, size, iconPadding,
+                    outlineWidth, StatusWidgetView.this);
+            if (mask == null) {
+                pending = true;
+                return outline != null && outlineSize == size ? outline : null;
+            }
+            outline = mask;
+            outlineResId = resId;
+            outlineSize = size;
+            outlineRadius = outlineWidth;
+            return outline;
+        }
+
+        @Override
+        boolean draw(@NonNull Canvas canvas, long now) {
+            if (drawable == null) return false;
+            if (outlineWidth > 0 && Color.alpha(outlineColor) > 0) {
+                VectorOutlines.Shape shape = VectorOutlines.request(getContext(), resId,
+                        StatusWidgetView.this);
+                if (shape == null) {
+                    // Still being parsed: keep the previous icon's halo until it lands.
+                    pending = true;
+                    shape = haloShape;
+                } else if (shape != VectorOutlines.NONE) {
+                    haloShape = shape;
+                }
+                if (shape == VectorOutlines.NONE) {
+                    Bitmap mask = outlineMask();
+                    if (mask != null) {
+                        outlinePaint.setColor(outlineColor);
+                        canvas.drawBitmap(mask, 0, 0, outlinePaint);
+                    }
+                } else if (shape != null) {
+                    haloBounds.set(drawable.getBounds());
+                    haloPaint.setColor(outlineColor);
+                    shape.drawHalo(canvas, haloBounds, outlineWidth, haloPaint);
+                }
+            }
+            drawable.draw(canvas);
+            if (badgeText != null) {
+                IconOutlines.drawTextBadge(canvas, size, size, badgeText,
+                        badgeBackgroundColor, badgeForegroundColor, badgeFillPaint, badgeTextPaint);
+            } else if (badge != null) {
+                IconOutlines.drawBadgeDrawable(canvas, size, size, badge);
+            }
+            return false;
+        }
+    }
+
+    private final EnumMap<BrickType, Brick> bricks = new EnumMap<>(BrickType.class);
+    private final TextBrick time = new TextBrick();
+    private final TextBrick date = new TextBrick();
+    private final MediaBrick media;
+    private boolean marqueeRunning = true;
+    private final Runnable marqueeTick;
+    private final List<BrickType> order = new ArrayList<>();
+    private boolean statusBarMode;
+
+    private int iconPadding;
+    private final Paint outlinePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint haloPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF haloBounds = new RectF();
+    private final Paint badgeFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint badgeTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    public StatusWidgetView(@NonNull Context context) {
+        super(context);
+        // Same inset as the icon views of the view-per-brick layout.
+        iconPadding = context.getResources().getDimensionPixelOffset(R.dimen.iconPaddingHorizontal);
+        media = new MediaBrick(new Marquee(context));
+        marqueeTick = () -> invalidateBrick(media);
+        bricks.put(BrickType.TIME, time);
+        bricks.put(BrickType.DATE, date);
+        bricks.put(BrickType.MEDIA, media);
+        bricks.put(BrickType.WIFI, new IconBrick());
+        bricks.put(BrickType.GPS, new IconBrick());
+        bricks.put(BrickType.BLUETOOTH, new IconBrick());
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        // The service keeps this view across configuration changes; the inset is in sp, so a
+        // font scale change moves it.
+        int padding = getResources().getDimensionPixelOffset(R.dimen.iconPaddingHorizontal);
+        if (padding == iconPadding) return;
+        iconPadding = padding;
+        for (Brick b : bricks.values()) {
+            if (b instanceof IconBrick icon) {
+                icon.updateDrawableBounds();
+                icon.dirty = true;
+            }
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    public void setStatusBarMode(boolean statusBar) {
+        if (statusBarMode == statusBar) return;
+        statusBarMode = statusBar;
+        requestLayout();
+    }
+
+    /** Bricks to lay out, in display order. Bricks not listed are never drawn. */
+    public void setBrickOrder(@NonNull List<BrickType> newOrder) {
+        if (order.equals(newOrder)) return;
+        order.clear();
+        order.addAll(newOrder);
+        for (BrickType type : BrickType.values()) {
+            brick(type).inOrder = order.contains(type);
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    /** Status-bar group: 0 = start, 1 = center, 2 = end. */
+    public void setStatusAlignment(@NonNull BrickType type, int alignment) {
+        Brick b = brick(type);
+        if (b.statusAlignment == alignment) return;
+        b.statusAlignment = alignment;
+        if (statusBarMode) requestLayout();
+    }
+
+    /** {@link View#VISIBLE}, {@link View#INVISIBLE} (keeps its space) or {@link View#GONE}. */
+    public void setBrickVisibility(@NonNull BrickType type, int visibility) {
+        Brick b = brick(type);
+        if (b.visibility == visibility) return;
+        boolean geometryChanged = b.visibility == GONE || visibility == GONE;
+        b.visibility = visibility;
+        if (type == BrickType.MEDIA && visibility == VISIBLE) {
+            media.marquee.restart();
+        }
+        if (geometryChanged) {
+            requestLayout();
+            invalidate();
+        } else {
+            invalidateBrick(b);
+        }
+    }
+
+    public int getBrickVisibility(@NonNull BrickType type) {
+        Brick b = brick(type);
+        return b.inOrder ? b.visibility : GONE;
+    }
+
+    /** Brick content box in view coordinates — for hit-testing taps. */
+    @NonNull
+    public Rect getBrickBounds(@NonNull BrickType type) {
+        return new Rect(brick(type).bounds);
+    }
+
+    public void setBrickMargins(@NonNull BrickType type, int start, int end) {
+        Brick b = brick(type);
+        if (b.marginStart == start && b.marginEnd == end) return;
+        b.marginStart = start;
+        b.marginEnd = end;
+        if (b.laidOut()) requestLayout();
+    }
+
+    public void setBrickAdjustY(@NonNull BrickType type, int adjustY) {
+        Brick b = brick(type);
+        if (b.adjustY == adjustY) return;
+        invalidateBrick(b);
+        b.adjustY = adjustY;
+        invalidateBrick(b);
+    }
+
+    /** Font, size and colours of a text brick (TIME, DATE or MEDIA). */
+    public void setTextStyle(@NonNull BrickType type, @NonNull Typeface typeface, int sizePx,
+                             int textColor, int outlineColor, float outlineWidth) {
+        Brick b = brick(type);
+        int oldWidth = b.width();
+        int oldHeight = b.height();
+        int oldOverdraw = b.overdraw();
+        if (b == media) {
+            applyTextStyle(media.source, typeface, sizePx, textColor, outlineColor, outlineWidth);
+            applyTextStyle(media.title, typeface, sizePx, textColor, outlineColor, outlineWidth);
+        } else if (b instanceof TextBrick) {
+            applyTextStyle(((TextBrick) b).line, typeface, sizePx, textColor, outlineColor, outlineWidth);
+        } else {
+            throw new IllegalArgumentException("Not a text brick: " + type);
+        }
+        onBrickContentChanged(b, oldWidth, oldHeight, oldOverdraw);
+    }
+
+    private static void applyTextStyle(TextLine line, Typeface typeface, int sizePx,
+                                       int textColor, int outlineColor, float outlineWidth) {
+        if (line.textColor != textColor || line.outlineColor != outlineColor
+                || line.outlineWidth != outlineWidth) {
+            line.releaseLayer();
+        }
+        line.textColor = textColor;
+        line.outlineColor = outlineColor;
+        line.outlineWidth = outlineWidth;
+        if (!typeface.equals(line.paint.getTypeface()) || line.paint.getTextSize() != sizePx) {
+            line.paint.setTypeface(typeface);
+            line.paint.setTextSize(sizePx);
+            line.rebuild();
+        }
+    }
+
+    /**
+     * Reserves at least {@code widthPx} for a text brick, for texts such as the date whose width
+     * would otherwise change when the text does.
+     */
+    public void setMinTextWidth(@NonNull BrickType type, int widthPx) {
+        Brick b = brick(type);
+        if (!(b instanceof TextBrick)) {
+            throw new IllegalArgumentException("Not a single-text brick: " + type);
+        }
+        TextLine line = ((TextBrick) b).line;
+        if (line.minWidth == widthPx) return;
+        int oldWidth = b.width();
+        int oldHeight = b.height();
+        line.minWidth = widthPx;
+        line.rebuild();
+        onBrickContentChanged(b, oldWidth, oldHeight, b.overdraw());
+    }
+
+    /** Horizontal alignment of the lines inside a multi-line brick (DATE or MEDIA): 0/1/2 = start/center/end. */
+    public void setLineAlignment(@NonNull BrickType type, int alignment) {
+        if (type == BrickType.MEDIA) {
+            if (media.alignment == alignment) return;
+            media.alignment = alignment;
+            invalidateBrick(media);
+        } else if (type == BrickType.DATE) {
+            Layout.Alignment a = alignment == 1 ? Layout.Alignment.ALIGN_CENTER
+                    : alignment == 2 ? Layout.Alignment.ALIGN_OPPOSITE
+                    : Layout.Alignment.ALIGN_NORMAL;
+            if (date.line.alignment == a) return;
+            date.line.alignment = a;
+            date.line.rebuild();
+            invalidateBrick(date);
+        }
+    }
+
+    /** Text of the TIME or DATE brick. */
+    public void setText(@NonNull BrickType type, @NonNull CharSequence text) {
+        Brick b = brick(type);
+        if (!(b instanceof TextBrick)) {
+            throw new IllegalArgumentException("Not a single-text brick: " + type);
+        }
+        TextLine line = ((TextBrick) b).line;
+        if (line.charCount < 0 && TextUtils.equals(line.text, text)) return;
+        int oldWidth = b.width();
+        int oldHeight = b.height();
+        line.charCount = -1;
+        line.text = text;
+        line.rebuild();
+        onBrickContentChanged(b, oldWidth, oldHeight, b.overdraw());
+    }
+
+    /**
+     * Single-line text from a reusable buffer; {@code chars} is copied. Allocation-free once the
+     * line has seen text this long, which is what a per-second clock needs.
+     */
+    public void setText(@NonNull BrickType type, @NonNull char[] chars, int count) {
+        Brick b = brick(type);
+        if (!(b instanceof TextBrick)) {
+            throw new IllegalArgumentException("Not a single-text brick: " + type);
+        }
+        TextLine line = ((TextBrick) b).line;
+        if (line.charCount == count && sameChars(line.chars, chars, count)) return;
+        int oldWidth = b.width();
+        int oldHeight = b.height();
+        if (line.chars.length < count) {
+            line.chars = new char[count];
+        }
+        System.arraycopy(chars, 0, line.chars, 0, count);
+        line.charCount = count;
+        line.rebuild();
+        onBrickContentChanged(b, oldWidth, oldHeight, b.overdraw());
+    }
+
+    private static boolean sameChars(char[] a, char[] b, int count) {
+        for (int i = 0; i < count; i++) {
+            if (a[i] != b[i]) return false;
+        }
+        return true;
+    }
+
+    public void setMedia(@NonNull CharSequence source, @NonNull CharSequence title) {
+        if (TextUtils.equals(media.source.text, source) && TextUtils.equals(media.title.text, title)) {
+            return;
+        }
+        int oldWidth = media.width();
+        int oldHeight = media.height();
+        media.source.text = source;
+        media.source.rebuild();
+        media.title.text = title;
+        media.title.rebuild();
+        media.marquee.restart();
+        onBrickContentChanged(media, oldWidth, oldHeight, media.overdraw());
+    }
+
+    public void setMediaShowSource(boolean showSource) {
+        if (media.showSource == showSource) return;
+        int oldWidth = media.width();
+        int oldHeight = media.height();
+        media.showSource = showSource;
+        onBrickContentChanged(media, oldWidth, oldHeight, media.overdraw());
+    }
+
+    public void setMediaMaxWidth(int maxWidth) {
+        if (media.maxWidth == maxWidth) return;
+        int oldWidth = media.width();
+        int oldHeight = media.height();
+        media.maxWidth = maxWidth;
+        onBrickContentChanged(media, oldWidth, oldHeight, media.overdraw());
+    }
+
+    /** Redraw rate of the scrolling media lines. */
+    public void setMediaMarqueeFps(int fps) {
+        if (media.marquee.setFps(fps)) {
+            invalidateBrick(media);
+        }
+    }
+
+    public void setIconSize(@NonNull BrickType type, int size) {
+        IconBrick b = iconBrick(type);
+        if (b.size == size) return;
+        b.size = size;
+        b.updateDrawableBounds();
+        b.dirty = true;
+        if (b.laidOut()) requestLayout();
+        invalidate();
+    }
+
+    /** Icon image and its tint (applied with {@code SRC_IN}, like {@code ImageView} tinting). */
+    public void setIcon(@NonNull BrickType type, int resId, int tint) {
+        IconBrick b = iconBrick(type);
+        if (b.resId == resId && b.tint == tint) return;
+        if (b.resId != resId) {
+            Drawable d = ContextCompat.getDrawable(getContext(), resId);
+            // Own mutable instance: tint and bounds must not leak into the shared constant state.
+            b.drawable = d != null ? d.mutate() : null;
+            b.resId = resId;
+            b.updateDrawableBounds();
+        }
+        b.tint = tint;
+        if (b.drawable != null) {
+            b.drawable.setTint(tint);
+        }
+        invalidateBrick(b);
+    }
+
+    public void setIconOutline(@NonNull BrickType type, int color, int width) {
+        IconBrick b = iconBrick(type);
+        width = Math.max(0, width);
+        if (b.outlineColor == color && b.outlineWidth == width) return;
+        b.outlineColor = color;
+        b.outlineWidth = width;
+        invalidateBrick(b);
+    }
+
+    /** Bottom-right badge: text wins over drawable, {@code null} for both removes it. */
+    public void setIconBadge(@NonNull BrickType type, @Nullable Drawable badge,
+                             @Nullable String text, int backgroundColor, int textColor) {
+        IconBrick b = iconBrick(type);
+        if (b.badge == badge && Objects.equals(b.badgeText, text)
+                && b.badgeBackgroundColor == backgroundColor && b.badgeForegroundColor == textColor) {
+            return;
+        }
+        b.badge = badge;
+        b.badgeText = text;
+        b.badgeBackgroundColor = backgroundColor;
+        b.badgeForegroundColor = textColor;
+        invalidateBrick(b);
+    }
+
+    @NonNull
+    private Brick brick(@NonNull BrickType type) {
+        Brick b = bricks.get(type);
+        if (b == null) throw new IllegalArgumentException("Unknown brick type: " + type);
+        return b;
+    }
+
+    @NonNull
+    private IconBrick iconBrick(@NonNull BrickType type) {
+        Brick b = brick(type);
+        if (!(b instanceof IconBrick)) throw new IllegalArgumentException("Not an icon brick: " + type);
+        return (IconBrick) b;
+    }
+
+    /**
+     * Re-layout only when the brick's footprint changed — the common case (minute tick, new track
+     * title of the same width, tint change) just redraws the brick.
+     */
+    private void onBrickContentChanged(Brick b, int oldWidth, int oldHeight, int oldOverdraw) {
+        b.dirty = true;
+        if (b.laidOut() && (b.width() != oldWidth || b.height() != oldHeight)) {
+            requestLayout();
+            invalidate();
+            return;
+        }
+        if (b.overdraw() > oldOverdraw) {
+            invalidate();
+        } else {
+            invalidateBrick(b);
+        }
+    }
+
+    /**
+     * Marks the brick for a redraw. The dirty rect only helps software rendering; with brick
+     * nodes the whole view is redrawn, but the other bricks replay their recordings.
+     */
+    private void invalidateBrick(Brick b) {
+        b.dirty = true;
+        if (!b.laidOut() || b.visibility != VISIBLE) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && isHardwareAccelerated()) {
+            postInvalidateOnAnimation();
+            return;
+        }
+        int pad = b.overdraw();
+        postInvalidateOnAnimation(
+                b.bounds.left - pad,
+                b.bounds.top + b.adjustY - pad,
+                b.bounds.right + pad,
+                b.bounds.bottom + b.adjustY + pad);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int contentWidth = 0;
+        int contentHeight = 0;
+        for (BrickType type : order) {
+            Brick b = brick(type);
+            if (!b.laidOut()) continue;
+            contentWidth += b.marginStart + b.width() + b.marginEnd;
+            contentHeight = Math.max(contentHeight, b.height());
+        }
+        int width = contentWidth + getPaddingLeft() + getPaddingRight();
+        int height = Math.max(contentHeight + getPaddingTop() + getPaddingBottom(),
+                getSuggestedMinimumHeight());
+        setMeasuredDimension(
+                resolveSize(width, widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        int innerTop = getPaddingTop();
+        int innerHeight = (bottom - top) - getPaddingTop() - getPaddingBottom();
+        int x = getPaddingLeft();
+        if (!statusBarMode) {
+            for (BrickType type : order) {
+                x = placeBrick(brick(type), x, innerTop, innerHeight);
+            }
+            return;
+        }
+
+        // Status-bar mode: start | spacer | center | spacer | end, spacers splitting the free space.
+        int[] groupWidths = new int[3];
+        for (BrickType type : order) {
+            Brick b = brick(type);
+            if (!b.laidOut()) continue;
+            groupWidths[clampAlignment(b.statusAlignment)] += b.marginStart + b.width() + b.marginEnd;
+        }
+        int innerWidth = (right - left) - getPaddingLeft() - getPaddingRight();
+        int free = Math.max(0, innerWidth - groupWidths[0] - groupWidths[1] - groupWidths[2]);
+        int[] groupX = {
+                x,
+                x + groupWidths[0] + free / 2,
+                x + groupWidths[0] + free + groupWidths[1]
+        };
+        for (BrickType type : order) {
+            Brick b = brick(type);
+            int group = clampAlignment(b.statusAlignment);
+            groupX[group] = placeBrick(b, groupX[group], innerTop, innerHeight);
+        }
+    }
+
+    private static int placeBrick(Brick b, int x, int innerTop, int innerHeight) {
+        if (!b.laidOut()) {
+            b.bounds.setEmpty();
+            return x;
+        }
+        int w = b.width();
+        int h = b.height();
+        int l = x + b.marginStart;
+        int t = innerTop + (innerHeight - h) / 2;
+        b.bounds.set(l, t, l + w, t + h);
+        return l + w + b.marginEnd;
+    }
+
+    private static int clampAlignment(int v) {
+        return v < 0 ? 0 : (v > 2 ? 2 : v);
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        setMarqueeRunning(isVisible);
+    }
+
+    @Override
+    public void onScreenStateChanged(int screenState) {
+        super.onScreenStateChanged(screenState);
+        setMarqueeRunning(screenState == SCREEN_STATE_ON && isShown());
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(marqueeTick);
+        media.source.releaseLayer();
+        media.title.releaseLayer();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            for (Brick b : bricks.values()) {
+                BrickNodes.discard(b);
+            }
+        }
+    }
+
+    /**
+     * Hidden or with the screen off, no marquee tick is posted at all; the media lines start
+     * over from the text start once the view is seen again.
+     */
+    private void setMarqueeRunning(boolean running) {
+        if (marqueeRunning == running) return;
+        marqueeRunning = running;
+        if (running) {
+            media.marquee.restart();
+            invalidateBrick(media);
+        } else {
+            removeCallbacks(marqueeTick);
+        }
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        boolean nodes = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated();
+        boolean mediaDrawn = false;
+        for (BrickType type : order) {
+            Brick b = brick(type);
+            if (!b.laidOut() || b.visibility != VISIBLE) continue;
+            int save = canvas.save();
+            canvas.translate(b.bounds.left, b.bounds.top + b.adjustY);
+            boolean drawn;
+            if (nodes) {
+                drawn = BrickNodes.draw(canvas, b, now);
+            } else {
+                b.animating = b.draw(canvas, now);
+                drawn = true;
+            }
+            if (drawn && b == media) {
+                mediaDrawn = true;
+            }
+            canvas.restoreToCount(save);
+        }
+        // A replayed media node keeps its tick. Otherwise one pending tick at most: other
+        // redraws (clock, icons) would stack them.
+        if (!mediaDrawn) return;
+        removeCallbacks(marqueeTick);
+        if (media.animating && marqueeRunning) {
+            postDelayed(marqueeTick, media.nextFrameDelay);
+        }
+    }
+
+    /** Per-brick display lists. Kept apart so API 28 never verifies code that touches RenderNode. */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private static final class BrickNodes {
+        /** Replays the brick, re-recording it first if dirty. Returns whether it was re-recorded. */
+        static boolean draw(@NonNull Canvas canvas, @NonNull Brick b, long now) {
+            RenderNode node = b.node;
+            if (node == null) {
+                node = new RenderNode("brick");
+                // Text outline strokes spill past the content box (see Brick#overdraw).
+                node.setClipToBounds(false);
+                b.node = node;
+            }
+            boolean recorded = false;
+            if (b.dirty || !node.hasDisplayList()) {
+                node.setPosition(0, 0, b.width(), b.height());
+                RecordingCanvas rc = node.beginRecording();
+                try {
+                    b.pending = false;
+                    b.animating = b.draw(rc, now);
+                } finally {
+                    node.endRecording();
+                }
+                // A stand-in is re-recorded on the invalidate that follows the real content.
+                b.dirty = b.pending;
+                recorded = true;
+            }
+            canvas.drawRenderNode(node);
+            return recorded;
+        }
+
+        static void discard(@NonNull Brick b) {
+            if (b.node != null) {
+                b.node.discardDisplayList();
+            }
+            b.dirty = true;
+        }
+    }
+}
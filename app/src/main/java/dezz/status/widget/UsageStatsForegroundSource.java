@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * {@link ForegroundAppSource} polling {@link UsageStatsManager} for activity resumes.
+ *
+ * Each poll decodes only the events since the previous one. The interval drops to
+ * {@link #FAST_CHECK_INTERVAL_MS} for a while after a switch — switches come in runs — and
+ * polling pauses with the screen, since nothing comes to the foreground while it's off.
+ */
+final class UsageStatsForegroundSource implements ForegroundAppSource {
+    private static final long CHECK_INTERVAL_MS = 1000L;
+    /** Poll interval for a while after the foreground app changed. */
+    private static final long FAST_CHECK_INTERVAL_MS = 250L;
+    private static final long FAST_CHECK_PERIOD_MS = 5_000L;
+    /** How far back the first read after (re)starting looks. */
+    private static final long LOOKBACK_MS = 60_000L;
+
+    private final Context context;
+    private final Handler handler;
+    @Nullable private UsageStatsManager usageStatsManager;
+    @Nullable private Listener listener;
+    @Nullable private String lastPackage;
+    @Nullable private String lastClass;
+    /**
+     * Timestamp of the newest usage event read so far; the next read starts there, so each poll
+     * decodes only what happened since the last one. 0 until the first read.
+     */
+    private long cursor = 0;
+    private final UsageEvents.Event event = new UsageEvents.Event();
+    /** {@link SystemClock#uptimeMillis()} of the last foreground app change. */
+    private long changedAt = 0;
+    private boolean screenStateReceiverRegistered = false;
+
+    private final BroadcastReceiver screenStateReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            handler.removeCallbacks(checkRunnable);
+            if (Intent.ACTION_SCREEN_ON.equals(intent.getAction()) && listener != null) {
+                handler.post(checkRunnable);
+            }
+        }
+    };
+
+    private final Runnable checkRunnable = new Runnable() {
+        @Override
+        public void run() {
+            check();
+            if (listener == null) return;
+            boolean recentChange = SystemClock.uptimeMillis() - changedAt < FAST_CHECK_PERIOD_MS;
+            handler.postDelayed(this, recentChange ? FAST_CHECK_INTERVAL_MS : CHECK_INTERVAL_MS);
+        }
+    };
+
+    UsageStatsForegroundSource(@NonNull Context context, @NonNull Handler handler) {
+        this.context = context;
+        this.handler = handler;
+    }
+
+    @Override
+    public void start(@NonNull Listener listener) {
+        this.listener = listener;
+        if (usageStatsManager == null) {
+            usageStatsManager = context.getSystemService(UsageStatsManager.class);
+        }
+        registerScreenStateReceiver();
+        handler.removeCallbacks(checkRunnable);
+        if (context.getSystemService(PowerManager.class).isInteractive()) {
+            handler.post(checkRunnable);
+        }
+    }
+
+    @Override
+    public void stop() {
+        handler.removeCallbacks(checkRunnable);
+        unregisterScreenStateReceiver();
+        listener = null;
+        usageStatsManager = null;
+        lastPackage = null;
+        lastClass = null;
+        cursor = 0;
+    }
+
+    private void registerScreenStateReceiver() {
+        if (screenStateReceiverRegistered) return;
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        context.registerReceiver(screenStateReceiver, filter);
+        screenStateReceiverRegistered = true;
+    }
+
+    private void unregisterScreenStateReceiver() {
+        if (!screenStateReceiverRegistered) return;
+        try {
+            context.unregisterReceiver(screenStateReceiver);
+        } catch (IllegalArgumentException ignored) {
+        }
+        screenStateReceiverRegistered = false;
+    }
+
+    private void check() {
+        Listener l = listener;
+        if (l == null || usageStatsManager == null) {
+            return;
+        }
+        if (!Permissions.isUsageAccessGranted(context)) {
+            stop();
+            l.onSourceLost();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // Inclusive start: the newest event of the previous read comes back once more, which is
+        // harmless, while an event recorded in the same millisecond after that read isn't lost.
+        long begin = cursor > 0 ? cursor : now - LOOKBACK_MS;
+        UsageEvents events = usageStatsManager.queryEvents(begin, now);
+        String latestPackage = lastPackage;
+        String latestClass = lastClass;
+        long latestTimestamp = 0;
+        while (events.getNextEvent(event)) {
+            long timestamp = event.getTimeStamp();
+            if (timestamp > cursor) {
+                cursor = timestamp;
+            }
+            int type = event.getEventType();
+            if (type == UsageEvents.Event.MOVE_TO_FOREGROUND
+                    || (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && type == UsageEvents.Event.ACTIVITY_RESUMED)) {
+                if (timestamp >= latestTimestamp) {
+                    latestTimestamp = timestamp;
+                    latestPackage = event.getPackageName();
+                    latestClass = event.getClassName();
+                }
+            }
+        }
+        if (latestPackage == null) {
+            return;
+        }
+        if (!latestPackage.equals(lastPackage)) {
+            changedAt = SystemClock.uptimeMillis();
+        }
+        lastPackage = latestPackage;
+        lastClass = latestClass;
+        l.onForegroundApp(latestPackage, latestClass);
+    }
+}
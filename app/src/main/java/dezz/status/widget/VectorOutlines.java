@@ -0,0 +1,261 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import android.content.Context;
+import android.content.res.XmlResourceParser;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.graphics.PathParser;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Vector-path outlines for the status icons. Every icon design is a VectorDrawable, so instead
+ * of rasterising the icon and dilating its alpha (see {@link IconOutlines}) the halo is the
+ * icon's own geometry drawn filled and stroked at twice the outline width with round joins —
+ * the same shape as the distance-transform outline, crisp at any size and with a cost that
+ * doesn't grow with icon pixels.
+ *
+ * The geometry is read once per drawable resource straight from its XML: fill areas as is,
+ * stroked paths converted to their stroke outline, group transforms applied. Drawables this
+ * can't represent (not a {@code <vector>}, clip paths) come back as {@link #NONE} and callers
+ * fall back to the raster mask.
+ *
+ * Parsing — XML, path data, path unions — runs on the {@link OutlineMaskCache} worker, like
+ * the masks it replaces. {@link #request} returns what's known and queues the rest; waiting
+ * views are invalidated once the shape lands. The shape table is touched on the main thread only.
+ */
+final class VectorOutlines {
+    private static final String TAG = "VectorOutlines";
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+
+    /** Parsed icon: union of everything the vector paints, in viewport coordinates. */
+    static final class Shape {
+        final Path path;
+        final float viewportWidth;
+        final float viewportHeight;
+
+        Shape(Path path, float viewportWidth, float viewportHeight) {
+            this.path = path;
+            this.viewportWidth = viewportWidth;
+            this.viewportHeight = viewportHeight;
+        }
+
+        /**
+         * Draws the halo for the icon laid out at {@code dst} (device pixels) with the outline
+         * {@code radius} in pixels. {@code paint} supplies the colour; style and stroke are set here.
+         */
+        void drawHalo(@NonNull Canvas canvas, @NonNull RectF dst, float radius, @NonNull Paint paint) {
+            float sx = dst.width() / viewportWidth;
+            float sy = dst.height() / viewportHeight;
+            if (sx <= 0 || sy <= 0) return;
+            paint.setStyle(Paint.Style.FILL_AND_STROKE);
+            paint.setStrokeJoin(Paint.Join.ROUND);
+            paint.setStrokeCap(Paint.Cap.ROUND);
+            int save = canvas.save();
+            canvas.translate(dst.left, dst.top);
+            canvas.scale(sx, sy);
+            // Icons keep their aspect ratio (FIT_CENTER), so sx == sy up to rounding.
+            paint.setStrokeWidth(2F * radius / Math.min(sx, sy));
+            canvas.drawPath(path, paint);
+            canvas.restoreToCount(save);
+        }
+    }
+
+    /** Returned for resources that have no vector outline; the raster mask is used for those. */
+    static final Shape NONE = new Shape(new Path(), 0, 0);
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final SparseArray<Shape> shapes = new SparseArray<>();
+    /** Shapes queued on the worker, with the views to invalidate when each is ready. */
+    private static final SparseArray<ArrayList<View>> pending = new SparseArray<>();
+
+    /**
+     * Outline shape of {@code resId}, {@link #NONE} if it has none, or {@code null} while it is
+     * being parsed — then {@code waiter}, if given, is invalidated when it's known.
+     */
+    @Nullable
+    static Shape request(@NonNull Context context, int resId, @Nullable View waiter) {
+        if (resId == 0) return NONE;
+        Shape shape = shapes.get(resId);
+        if (shape != null) return shape;
+
+        ArrayList<View> waiters = pending.get(resId);
+        if (waiters == null) {
+            waiters = new ArrayList<>();
+            pending.put(resId, waiters);
+            Context appContext = context.getApplicationContext();
+            OutlineMaskCache.execute(() -> {
+                Shape parsed = parse(appContext, resId);
+                mainHandler.post(() -> {
+                    shapes.put(resId, parsed != null ? parsed : NONE);
+                    ArrayList<View> views = pending.get(resId);
+                    pending.remove(resId);
+                    if (views != null) {
+                        for (View v : views) {
+                            v.invalidate();
+                        }
+                    }
+                });
+            });
+        }
+        if (waiter != null && !waiters.contains(waiter)) {
+            waiters.add(waiter);
+        }
+        return null;
+    }
+
+    /** Worker thread. */
+    @Nullable
+    private static Shape parse(Context context, int resId) {
+        try (XmlResourceParser parser = context.getResources().getXml(resId)) {
+            Path union = new Path();
+            float viewportWidth = 0;
+            float viewportHeight = 0;
+            ArrayDeque<Matrix> groups = new ArrayDeque<>();
+            groups.push(new Matrix());
+            Paint strokePaint = new Paint();
+            strokePaint.setStyle(Paint.Style.STROKE);
+
+            int event;
+            while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (event == XmlPullParser.END_TAG) {
+                    if ("group".equals(parser.getName())) groups.pop();
+                    continue;
+                }
+                if (event != XmlPullParser.START_TAG) continue;
+                switch (parser.getName()) {
+                    case "vector":
+                        viewportWidth = floatAttr(parser, "viewportWidth", 0);
+                        viewportHeight = floatAttr(parser, "viewportHeight", 0);
+                        break;
+                    case "group": {
+                        float pivotX = floatAttr(parser, "pivotX", 0);
+                        float pivotY = floatAttr(parser, "pivotY", 0);
+                        // Same order as VectorDrawable's group matrix.
+                        Matrix local = new Matrix();
+                        local.postTranslate(-pivotX, -pivotY);
+                        local.postScale(floatAttr(parser, "scaleX", 1), floatAttr(parser, "scaleY", 1));
+                        local.postRotate(floatAttr(parser, "rotation", 0), 0, 0);
+                        local.postTranslate(floatAttr(parser, "translateX", 0) + pivotX,
+                                floatAttr(parser, "translateY", 0) + pivotY);
+                        Matrix stacked = new Matrix(groups.peek());
+                        stacked.preConcat(local);
+                        groups.push(stacked);
+                        break;
+                    }
+                    case "path": {
+                        String data = parser.getAttributeValue(ANDROID_NS, "pathData");
+                        if (data == null) break;
+                        Path src = PathParser.createPathFromPathData(data);
+                        if (isEvenOdd(parser.getAttributeValue(ANDROID_NS, "fillType"))) {
+                            src.setFillType(Path.FillType.EVEN_ODD);
+                        }
+                        Matrix m = groups.peek();
+                        if (isPainted(parser.getAttributeValue(ANDROID_NS, "fillColor"))) {
+                            Path fill = new Path(src);
+                            fill.transform(m);
+                            union.op(fill, Path.Op.UNION);
+                        }
+                        float strokeWidth = floatAttr(parser, "strokeWidth", 0);
+                        if (strokeWidth > 0
+                                && isPainted(parser.getAttributeValue(ANDROID_NS, "strokeColor"))) {
+                            strokePaint.setStrokeWidth(strokeWidth);
+                            strokePaint.setStrokeCap(lineCap(parser.getAttributeValue(ANDROID_NS, "strokeLineCap")));
+                            strokePaint.setStrokeJoin(lineJoin(parser.getAttributeValue(ANDROID_NS, "strokeLineJoin")));
+                            Path stroke = new Path();
+                            strokePaint.getFillPath(src, stroke);
+                            stroke.transform(m);
+                            union.op(stroke, Path.Op.UNION);
+                        }
+                        break;
+                    }
+                    case "clip-path":
+                        return null;
+                    default:
+                        break;
+                }
+            }
+            if (viewportWidth <= 0 || viewportHeight <= 0) return null;
+            return new Shape(union, viewportWidth, viewportHeight);
+        } catch (Exception e) {
+            // Not XML (e.g. a PNG) or not parseable — the raster outline handles it.
+            Log.d(TAG, "No vector outline for resource " + resId + ": " + e);
+            return null;
+        }
+    }
+
+    private static float floatAttr(XmlResourceParser parser, String name, float def) {
+        String v = parser.getAttributeValue(ANDROID_NS, name);
+        if (v == null) return def;
+        try {
+            return Float.parseFloat(v);
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    // Enum attributes come back as their integer value from compiled XML.
+
+    private static boolean isEvenOdd(@Nullable String v) {
+        return "evenOdd".equals(v) || "1".equals(v);
+    }
+
+    private static Paint.Cap lineCap(@Nullable String v) {
+        if ("round".equals(v) || "1".equals(v)) return Paint.Cap.ROUND;
+        if ("square".equals(v) || "2".equals(v)) return Paint.Cap.SQUARE;
+        return Paint.Cap.BUTT;
+    }
+
+    private static Paint.Join lineJoin(@Nullable String v) {
+        if ("round".equals(v) || "1".equals(v)) return Paint.Join.ROUND;
+        if ("bevel".equals(v) || "2".equals(v)) return Paint.Join.BEVEL;
+        return Paint.Join.MITER;
+    }
+
+    /** Absent or fully transparent colours paint nothing; references are assumed opaque. */
+    private static boolean isPainted(@Nullable String color) {
+        if (color == null) return false;
+        if (color.startsWith("#")) {
+            try {
+                return Color.alpha(Color.parseColor(color)) != 0;
+            } catch (IllegalArgumentException e) {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private VectorOutlines() {}
+}
@@ -44,7 +44,7 @@ public final class ViewBinder {
         checkbox.setOnCheckedChangeListener((buttonView, isChecked) -> {
             preference.set(isChecked);
             if (WidgetService.isRunning()) {
-                WidgetService.getInstance().applyPreferences();
+                WidgetService.getInstance().applyPreference(preference.key);
             }
         });
     }
@@ -87,14 +87,14 @@ public final class ViewBinder {
         }
         slider.addOnChangeListener((s, value, fromUser) -> {
             // Programmatic setValue (e.g. live-updating the position slider while the widget is
-            // being dragged) shouldn't write back to the pref or kick applyPreferences().
+            // being dragged) shouldn't write back to the pref or kick applyPreference().
             if (valueLabel != null) {
                 valueLabel.setText(formatter.getFormattedValue(value));
             }
             if (!fromUser) return;
             preference.set((int) value);
             if (WidgetService.isRunning()) {
-                WidgetService.getInstance().applyPreferences();
+                WidgetService.getInstance().applyPreference(preference.key);
             }
         });
     }
@@ -180,7 +180,7 @@ public final class ViewBinder {
                     slider.setValue(clamped);
                     preference.set(clamped);
                     if (WidgetService.isRunning()) {
-                        WidgetService.getInstance().applyPreferences();
+                        WidgetService.getInstance().applyPreference(preference.key);
                     }
                 })
                 .show();
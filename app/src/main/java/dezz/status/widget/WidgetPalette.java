@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Overlay colours for one widget theme, resolved once from the themed context. The service
+ * rebuilds it whenever the theme preference or the configuration changes; everything else just
+ * reads ints. Colours with a user-set alpha (outline, background) keep their RGB here and get
+ * the alpha OR-ed in, so the blend costs no lookup either.
+ */
+final class WidgetPalette {
+    // Wi-Fi state colours by ordinal (OFF, NO_INTERNET, LIMITED_INTERNET, INTERNET).
+    private static final int[] WIFI_STATE_COLOR_RES = {
+            R.color.status_off,
+            R.color.status_error,
+            R.color.status_warning,
+            R.color.status_ok
+    };
+    // GNSS state colours by ordinal (OFF, BAD, GOOD).
+    private static final int[] GNSS_STATE_COLOR_RES = {
+            R.color.status_off,
+            R.color.status_warning,
+            R.color.status_ok
+    };
+    // Bluetooth state colours by ordinal (OFF, NO_DEVICE, CONNECTED).
+    private static final int[] BT_STATE_COLOR_RES = {
+            R.color.status_off,
+            R.color.status_off,
+            R.color.status_bluetooth
+    };
+
+    final int textPrimary;
+    /** Opaque outline colour — text badge foreground. */
+    final int outlineOpaque;
+    private final int outlineRgb;
+    private final int backgroundRgb;
+    private final int[] wifiStates;
+    private final int[] gnssStates;
+    private final int[] bluetoothStates;
+
+    private WidgetPalette(@NonNull Context themed) {
+        textPrimary = ContextCompat.getColor(themed, R.color.text_primary);
+        int outline = ContextCompat.getColor(themed, R.color.text_outline);
+        outlineRgb = outline & 0x00FFFFFF;
+        outlineOpaque = outline | 0xFF000000;
+        backgroundRgb = ContextCompat.getColor(themed, R.color.widget_background) & 0x00FFFFFF;
+        wifiStates = resolve(themed, WIFI_STATE_COLOR_RES);
+        gnssStates = resolve(themed, GNSS_STATE_COLOR_RES);
+        bluetoothStates = resolve(themed, BT_STATE_COLOR_RES);
+    }
+
+    @NonNull
+    static WidgetPalette from(@NonNull Context themed) {
+        return new WidgetPalette(themed);
+    }
+
+    /** Text / icon outline colour with the given alpha (0..255). */
+    int outline(int alpha) {
+        return outlineRgb | (alpha << 24);
+    }
+
+    /** Widget background colour with the given alpha (0..255). */
+    int background(int alpha) {
+        return backgroundRgb | (alpha << 24);
+    }
+
+    int wifiState(int ordinal) {
+        return wifiStates[ordinal];
+    }
+
+    int gnssState(int ordinal) {
+        return gnssStates[ordinal];
+    }
+
+    int bluetoothState(int ordinal) {
+        return bluetoothStates[ordinal];
+    }
+
+    private static int[] resolve(Context themed, int[] colorRes) {
+        int[] colors = new int[colorRes.length];
+        for (int i = 0; i < colorRes.length; i++) {
+            colors[i] = ContextCompat.getColor(themed, colorRes[i]);
+        }
+        return colors;
+    }
+}
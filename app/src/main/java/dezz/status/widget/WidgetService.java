@@ -18,13 +18,12 @@
 package dezz.status.widget;
 
 import android.annotation.SuppressLint;
+import android.app.ActivityManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
-import android.app.usage.UsageEvents;
-import android.app.usage.UsageStatsManager;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothProfile;
@@ -33,6 +32,7 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.res.ColorStateList;
@@ -59,17 +59,23 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.Settings;
+import android.text.TextPaint;
+import android.util.DisplayMetrics;
 import android.util.Log;
 import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.view.WindowManager;
 import android.widget.LinearLayout;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -80,15 +86,12 @@ import androidx.core.widget.ImageViewCompat;
 
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.EnumMap;
-import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.TimeZone;
 
 import dezz.status.widget.databinding.OverlayStatusWidgetBinding;
 
@@ -145,6 +148,8 @@ public class WidgetService extends Service {
     private static final int WIDGET_MODE_FLOATING = 0;
     private static final int WIDGET_MODE_STATUS_BAR = 1;
 
+    private static final int RENDER_MODE_SURFACE = 1;
+
     // Icon style indices (must match strings.xml/icon_styles array order).
     private static final int STYLE_MONO = 0;
     private static final int STYLE_COLOR = 1;
@@ -154,10 +159,10 @@ public class WidgetService extends Service {
     private static final String TAG = "WidgetService";
     private static final int NOTIFICATION_ID = 1001;
     private static final String CHANNEL_ID = "WidgetServiceChannel";
-    private static final long GNSS_STATUS_CHECK_INTERVAL = 1000;
-    private static final long DATETIME_UPDATE_INTERVAL_MS = 60_000L;
-    private static final long FOREGROUND_APP_CHECK_INTERVAL_MS = 1000L;
-    private static final long FOREGROUND_APP_LOOKBACK_MS = 60_000L;
+    private static final long SECONDS_UPDATE_INTERVAL_MS = 1_000L;
+    private static final String TABULAR_FIGURES = "'tnum'";
+    /** How close to a screen edge a dropped widget sticks to it, in dp. */
+    private static final int SNAP_EDGE_DISTANCE_DP = 24;
     private static final String GNSSSHARE_CLIENT_PACKAGE = "dezz.gnssshare.client";
     private static final String GNSSSHARE_SATELLITE_STATUS_ACTION = "dezz.gnssshare.action.SATELLITE_STATUS";
     private static final String GNSSSHARE_EXTRA_SATELLITES_COUNT = "count";
@@ -166,16 +171,39 @@ public class WidgetService extends Service {
     private static WidgetService instance;
 
     private Preferences prefs;
+    /** Read-side view of {@link #prefs}; dropped on every change and rebuilt on next access. */
+    @Nullable private PreferencesSnapshot snapshot;
+    // SharedPreferences holds change listeners weakly — this field keeps ours alive.
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefsChangeListener =
+            (sharedPreferences, key) -> snapshot = null;
 
     private WindowManager windowManager;
     private WindowManager.LayoutParams params;
 
-    private OverlayStatusWidgetBinding binding;
+    /** Window root: {@code binding.getRoot()} or {@link #surface}, depending on the render mode. */
+    @Nullable private View overlayView;
+    /** View-per-brick mode only. */
+    @Nullable private OverlayStatusWidgetBinding binding;
+    /** Single-surface mode only. */
+    @Nullable private StatusWidgetView surface;
+    private final TextPaint metricsPaint = new TextPaint();
+    @Nullable private Drawable whitelistBadge;
 
     private int initialX;
     private int initialY;
     private float initialTouchX;
     private float initialTouchY;
+    /**
+     * Drag target, moved to the window on the next frame. Touch panels report moves faster than
+     * the display refreshes; one updateViewLayout per frame is all that can show anyway.
+     */
+    private int dragX;
+    private int dragY;
+    private boolean dragFrameScheduled = false;
+    private final Choreographer.FrameCallback dragFrame = frameTimeNanos -> {
+        dragFrameScheduled = false;
+        moveOverlayTo(dragX, dragY);
+    };
     private GnssState gnssState = GnssState.OFF;
     private WiFiState wifiState = WiFiState.OFF;
     private BluetoothState bluetoothState = BluetoothState.OFF;
@@ -183,8 +211,21 @@ public class WidgetService extends Service {
     private boolean btReceiverRegistered = false;
 
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Bricks waiting for the next frame — see markDirty().
+    private static final int DIRTY_WIFI = 1;
+    private static final int DIRTY_GNSS = 1 << 1;
+    private static final int DIRTY_BLUETOOTH = 1 << 2;
+    private static final int DIRTY_MEDIA = 1 << 3;
+    private int dirtyBricks;
+    private boolean flushScheduled;
+    private final Choreographer.FrameCallback flushDirtyBricks = frameTimeNanos -> flushDirtyBricks();
     private LocationManager locationManager = null;
     private ConnectivityManager connectivityManager = null;
+    /**
+     * {@link SystemClock#elapsedRealtime()} of the last location fix; 0 before the first one.
+     * The GNSS icon decays from it by deadline, see {@link #scheduleGnssDeadlines}.
+     */
     private long lastLocationUpdateTime = 0;
 
     private GradientDrawable background = null;
@@ -193,16 +234,51 @@ public class WidgetService extends Service {
 
     private int touchSlop;
 
-    private SimpleDateFormat timeFormat;
-    private SimpleDateFormat dateFormat;
-    private String currentDateFormatPattern;
+    private final ClockFormatter clock = new ClockFormatter();
+
+    /** Source in use while a hide-in-apps list is set; see {@link #updateForegroundAppTracking}. */
+    @Nullable private ForegroundAppSource foregroundAppSource;
+    private UsageStatsForegroundSource usageStatsSource;
+    private final AccessibilityForegroundSource accessibilitySource = new AccessibilityForegroundSource();
+    @Nullable private String lastForegroundPackage;
+    @Nullable private String lastForegroundClass;
+    /** Bricks hidden over the foreground app, as {@link HideIndex} bits. */
+    private int hiddenBricks = 0;
+    private final ForegroundAppSource.Listener foregroundAppListener = new ForegroundAppSource.Listener() {
+        @Override
+        public void onForegroundApp(@NonNull String packageName, @Nullable String className) {
+            onForegroundAppChanged(packageName, className);
+        }
 
-    private UsageStatsManager usageStatsManager = null;
-    private Set<String> hiddenInPackages;
-    private String lastForegroundPackage;
+        @Override
+        public void onSourceLost() {
+            foregroundAppSource = null;
+            updateForegroundAppTracking();
+        }
+    };
+    /**
+     * Foreground app is in the hide list. The overlay window is then removed altogether — no
+     * layer to compose — and clock ticks, internet probes and brick refreshes are held back
+     * until it comes back; see {@link #applyOverlayVisibility}.
+     */
     private boolean overlayHiddenByApp = false;
+    /** Whether the overlay window(s) are currently added to the window manager. */
+    private boolean overlayAttached = false;
+    /**
+     * Status bar split into one content-sized window per alignment group instead of a
+     * full-width strip; see {@link #useSplitWindows}. {@link #overlayView} only parks the
+     * hidden bricks then and is never added itself.
+     */
+    private boolean splitWindows = false;
+    /** Start, center and end group windows, with their params; {@code null} unless split. */
+    @Nullable private LinearLayout[] groupWindows;
+    @Nullable private WindowManager.LayoutParams[] groupParams;
 
     private Context themedContext;
+    /** Colours of {@link #themedContext}; rebuilt with it. */
+    private WidgetPalette palette;
+    /** Density the overlay views were created for; see {@link #onConfigurationChanged}. */
+    private int overlayDensityDpi;
     private int appliedThemePref = -1;
 
     /** Fires when the overlay's position or size changes so the settings UI can stay in sync. */
@@ -228,6 +304,10 @@ public class WidgetService extends Service {
     private final MediaSessionManager.OnActiveSessionsChangedListener activeSessionsChangedListener =
             this::rebindMediaControllers;
 
+    /** Satellites from the platform GNSS status — the badge prefers them to GNSS Share. */
+    private final GnssSatellites gnssSatellites = new GnssSatellites();
+    /** Number on the GPS badge as last drawn; 0 = no badge. */
+    private int shownSatellitesCount = 0;
     private int satellitesCount = 0;
     private long satellitesCountTimestamp = 0;
     private boolean satelliteReceiverRegistered = false;
@@ -240,12 +320,12 @@ public class WidgetService extends Service {
             satellitesCountTimestamp = System.currentTimeMillis();
             mainHandler.removeCallbacks(satellitesCountResetRunnable);
             mainHandler.postDelayed(satellitesCountResetRunnable, GNSSSHARE_SATELLITE_STATUS_TIMEOUT_MS);
-            updateGnssStatus();
+            updateSatellitesBadge();
         }
     };
     private final Runnable satellitesCountResetRunnable = () -> {
         satellitesCount = 0;
-        updateGnssStatus();
+        updateSatellitesBadge();
     };
 
     private final BroadcastReceiver bluetoothReceiver = new BroadcastReceiver() {
@@ -275,54 +355,80 @@ public class WidgetService extends Service {
         }
     };
 
-    private final Runnable updateDateTimeRunnable = new Runnable() {
-        @Override
-        public void run() {
-            updateDateTime();
-            long now = System.currentTimeMillis();
-            long delay = DATETIME_UPDATE_INTERVAL_MS - (now % DATETIME_UPDATE_INTERVAL_MS);
-            mainHandler.postDelayed(this, delay);
-        }
+    /** A font family finished loading in the background: swap it in for the stand-in. */
+    private final Runnable fontsLoadedListener = () -> {
+        if (overlayView == null) return;
+        applyTimeBrickSettings();
+        applyDateBrickSettings();
+        applyMediaBrickSettings();
+        applyMinimumHeight(snapshot().bricks);
     };
 
-    private final Runnable foregroundAppCheckRunnable = new Runnable() {
+    /**
+     * Minute ticks come from the system: TIME_TICK fires on the minute boundary, TIME_CHANGED and
+     * TIMEZONE_CHANGED on manual or network time changes, SCREEN_ON right after waking — so the
+     * clock is right immediately after deep sleep without the service holding any timer.
+     */
+    private boolean timeTickReceiverRegistered = false;
+    private final BroadcastReceiver timeTickReceiver = new BroadcastReceiver() {
         @Override
-        public void run() {
-            checkForegroundApp();
-            mainHandler.postDelayed(this, FOREGROUND_APP_CHECK_INTERVAL_MS);
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                clock.setTimeZone(TimeZone.getDefault());
+            }
+            updateDateTime();
+            if (secondsTickScheduled && !Intent.ACTION_TIME_TICK.equals(intent.getAction())) {
+                // The wall clock jumped: realign the seconds tick to the new second boundary.
+                Choreographer.getInstance().removeFrameCallback(secondsTick);
+                postSecondsTick();
+            }
         }
     };
 
-    private final Runnable updateGnssStatusRunnable = new Runnable() {
+    /**
+     * Seconds mode: a frame callback due at the next wall-clock second, so the new text goes out
+     * with the first frame of that second. Vsync stops with the display, and the ticks with it.
+     */
+    private boolean secondsTickScheduled = false;
+    private final Choreographer.FrameCallback secondsTick = new Choreographer.FrameCallback() {
         @Override
-        public void run() {
-            if (System.currentTimeMillis() - lastLocationUpdateTime > 10000) {
-                setGnssStatus(GnssState.OFF);
-            } else if (System.currentTimeMillis() - lastLocationUpdateTime > 5000) {
-                setGnssStatus(GnssState.BAD);
-            }
-
-            mainHandler.postDelayed(this, GNSS_STATUS_CHECK_INTERVAL);
+        public void doFrame(long frameTimeNanos) {
+            updateDateTime();
+            postSecondsTick();
         }
     };
 
+    private final Runnable gnssBadDeadline = () -> setGnssStatus(GnssState.BAD);
+    private final Runnable gnssOffDeadline = () -> setGnssStatus(GnssState.OFF);
+
     private final GnssStatus.Callback gnssStatusCallback = new GnssStatus.Callback() {
         @Override
         public void onStarted() {
             Log.d(TAG, "GNSS is started");
             setGnssStatus(GnssState.BAD);
+            scheduleGnssDeadlines();
         }
 
         @Override
         public void onStopped() {
             Log.d(TAG, "GNSS is stopped");
+            gnssSatellites.reset();
             setGnssStatus(GnssState.OFF);
+            updateSatellitesBadge();
         }
 
         @Override
         public void onFirstFix(int ttffMillis) {
             Log.d(TAG, "GNSS has first fix");
             setGnssStatus(GnssState.BAD);
+            scheduleGnssDeadlines();
+        }
+
+        @Override
+        public void onSatelliteStatusChanged(@NonNull GnssStatus status) {
+            if (!snapshot().gps.showSatelliteBadge) return;
+            if (!gnssSatellites.update(status, SystemClock.elapsedRealtime())) return;
+            updateSatellitesBadge();
         }
     };
 
@@ -330,12 +436,13 @@ public class WidgetService extends Service {
         @Override
         public void onLocationChanged(@NonNull Location location) {
             Log.d(TAG, "Location changed: " + location);
-            lastLocationUpdateTime = System.currentTimeMillis();
-            if (location.hasAccuracy() && location.getAccuracy() < 20.0) {
+            lastLocationUpdateTime = SystemClock.elapsedRealtime();
+            if (location.hasAccuracy() && location.getAccuracy() < snapshot().gps.goodAccuracyMeters) {
                 setGnssStatus(GnssState.GOOD);
             } else {
                 setGnssStatus(GnssState.BAD);
             }
+            scheduleGnssDeadlines();
         }
 
         @Override
@@ -386,6 +493,8 @@ public class WidgetService extends Service {
     private final Runnable reachabilityProbeRunnable = new Runnable() {
         @Override
         public void run() {
+            // Hidden: stop probing; applyOverlayVisibility() probes and restarts on show.
+            if (overlayHiddenByApp) return;
             if (wifiState != WiFiState.OFF) {
                 probeReachability();
             }
@@ -425,21 +534,57 @@ public class WidgetService extends Service {
         }
 
         instance = this;
+        prefs.registerChangeListener(prefsChangeListener);
 
         touchSlop = ViewConfiguration.get(this).getScaledTouchSlop();
-        timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
+        usageStatsSource = new UsageStatsForegroundSource(this, mainHandler);
 
         windowManager = getSystemService(WindowManager.class);
+        // Low-RAM units get half the outline mask budget; misses come back from the disk store.
+        if (getSystemService(ActivityManager.class).isLowRamDevice()) {
+            OutlineMaskCache.setMaxBytes(OutlineMaskCache.DEFAULT_MAX_BYTES / 2);
+        }
+
+        PreferencesSnapshot s = snapshot();
+        Fonts.addLoadListener(fontsLoadedListener);
+        Fonts.preload(this, s.time.fontFamily, s.date.fontFamily, s.media.fontFamily);
 
         createOverlayView();
     }
 
     private void createOverlayView() {
+        overlayDensityDpi = getResources().getConfiguration().densityDpi;
+        // New window params are built below; until then there is nothing to attach.
+        params = null;
         // Create the overlay view
-        LayoutInflater layoutInflater = LayoutInflater.from(this);
-        binding = OverlayStatusWidgetBinding.inflate(layoutInflater);
-        binding.getRoot().setVisibility(View.VISIBLE);
-        binding.getRoot().addOnLayoutChangeListener((v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> {
+        if (snapshot().renderMode == RENDER_MODE_SURFACE) {
+            binding = null;
+            surface = new StatusWidgetView(this);
+            overlayView = surface;
+        } else {
+            surface = null;
+            binding = OverlayStatusWidgetBinding.inflate(LayoutInflater.from(this));
+            overlayView = binding.getRoot();
+        }
+        // The new root shows no time yet, whatever the clock buffer holds.
+        clock.invalidateTime();
+        splitWindows = useSplitWindows(snapshot());
+        groupWindows = null;
+        groupParams = null;
+        if (splitWindows) {
+            groupWindows = new LinearLayout[]{binding.startGroup, binding.centerGroup, binding.endGroup};
+            for (LinearLayout group : groupWindows) {
+                group.addOnLayoutChangeListener((v, left, top, right, bottom,
+                                                 oldLeft, oldTop, oldRight, oldBottom) -> {
+                    if (right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop) {
+                        layoutGroupWindows();
+                        notifyOverlayState();
+                    }
+                });
+            }
+        }
+        overlayView.setVisibility(View.VISIBLE);
+        overlayView.addOnLayoutChangeListener((v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> {
             updateBackground();
             // Right-edge anchoring: when the widget content changes its measured width, shift the
             // window's left edge by the same amount so the right edge stays put. Done in a single
@@ -448,8 +593,9 @@ public class WidgetService extends Service {
             if (params == null) return;
             int oldWidth = oldRight - oldLeft;
             int newWidth = right - left;
-            if (prefs.widgetMode.get() != WIDGET_MODE_STATUS_BAR
-                    && prefs.widgetAlignRight.get() && oldWidth > 0 && newWidth > 0 && newWidth != oldWidth) {
+            PreferencesSnapshot s = snapshot();
+            if (s.widgetMode != WIDGET_MODE_STATUS_BAR
+                    && s.widgetAlignRight && oldWidth > 0 && newWidth > 0 && newWidth != oldWidth) {
                 params.x += oldWidth - newWidth;
                 try {
                     windowManager.updateViewLayout(v, params);
@@ -469,11 +615,32 @@ public class WidgetService extends Service {
         setupDragListener();
 
         // Add the view to the window
-        boolean statusBar = prefs.widgetMode.get() == WIDGET_MODE_STATUS_BAR;
-        params = new WindowManager.LayoutParams(
-                statusBar
-                        ? WindowManager.LayoutParams.MATCH_PARENT
-                        : WindowManager.LayoutParams.WRAP_CONTENT,
+        PreferencesSnapshot s = snapshot();
+        boolean statusBar = s.widgetMode == WIDGET_MODE_STATUS_BAR;
+        params = newOverlayParams(statusBar
+                ? WindowManager.LayoutParams.MATCH_PARENT
+                : WindowManager.LayoutParams.WRAP_CONTENT);
+        params.gravity = Gravity.TOP | Gravity.LEFT;
+        params.x = statusBar ? 0 : s.overlayX;
+        params.y = statusBar ? 0 : s.overlayY;
+        if (splitWindows) {
+            groupParams = new WindowManager.LayoutParams[groupWindows.length];
+            for (int i = 0; i < groupWindows.length; i++) {
+                groupParams[i] = newOverlayParams(WindowManager.LayoutParams.WRAP_CONTENT);
+                // The end group is placed from the right edge, the other two from the left.
+                groupParams[i].gravity = Gravity.TOP | (i == 2 ? Gravity.RIGHT : Gravity.LEFT);
+            }
+            layoutGroupWindows();
+        }
+
+        if (!overlayHiddenByApp) {
+            attachOverlay();
+        }
+    }
+
+    private static WindowManager.LayoutParams newOverlayParams(int width) {
+        WindowManager.LayoutParams lp = new WindowManager.LayoutParams(
+                width,
                 WindowManager.LayoutParams.WRAP_CONTENT,
                 WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY,
                 WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE |
@@ -482,50 +649,145 @@ public class WidgetService extends Service {
                 ,
                 PixelFormat.TRANSLUCENT
         );
-        params.gravity = Gravity.TOP | Gravity.LEFT;
-        params.x = statusBar ? 0 : prefs.overlayX.get();
-        params.y = statusBar ? 0 : prefs.overlayY.get();
-        params.windowAnimations = 0;
+        lp.windowAnimations = 0;
+        return lp;
+    }
+
+    /**
+     * Split only pays off where it can look identical: the status bar drawn by views with a
+     * fully transparent background. A visible background is one strip and stays one window;
+     * the single-surface renderer draws all groups in one view and can't be split.
+     */
+    private static boolean useSplitWindows(PreferencesSnapshot s) {
+        return s.statusBarSplitWindows
+                && s.widgetMode == WIDGET_MODE_STATUS_BAR
+                && s.renderMode != RENDER_MODE_SURFACE
+                && s.backgroundAlpha == 0;
+    }
+
+    /**
+     * Places the group windows where the full-width strip would have its groups: start after
+     * the left padding, end before the right one, center in the middle of the space left
+     * between them — the two weighted spacers of the strip split that space evenly.
+     */
+    private void layoutGroupWindows() {
+        if (!splitWindows || groupWindows == null || groupParams == null) return;
+        PreferencesSnapshot s = snapshot();
+        int startWidth = groupWidth(binding.startGroup);
+        int centerWidth = groupWidth(binding.centerGroup);
+        int endWidth = groupWidth(binding.endGroup);
+        int free = getResources().getDisplayMetrics().widthPixels
+                - s.paddingLeft - s.paddingRight - startWidth - centerWidth - endWidth;
+        int[] x = {s.paddingLeft, s.paddingLeft + startWidth + Math.max(0, free) / 2, s.paddingRight};
+        for (int i = 0; i < groupWindows.length; i++) {
+            if (groupParams[i].x == x[i]) continue;
+            groupParams[i].x = x[i];
+            if (!overlayAttached) continue;
+            try {
+                windowManager.updateViewLayout(groupWindows[i], groupParams[i]);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    private static int groupWidth(View group) {
+        return group.getVisibility() == View.GONE ? 0 : group.getWidth();
+    }
 
+    private void attachOverlay() {
+        if (overlayAttached || overlayView == null || params == null) return;
         try {
-            windowManager.addView(binding.getRoot(), params);
+            if (splitWindows) {
+                for (int i = 0; i < groupWindows.length; i++) {
+                    windowManager.addView(groupWindows[i], groupParams[i]);
+                }
+            } else {
+                windowManager.addView(overlayView, params);
+            }
+            overlayAttached = true;
         } catch (Exception e) {
             Toast.makeText(this, R.string.overlay_permission_required, Toast.LENGTH_LONG).show();
             stopSelf();
         }
     }
 
+    private void detachOverlay() {
+        if (!overlayAttached) return;
+        overlayAttached = false;
+        if (splitWindows) {
+            for (View group : groupWindows) {
+                try {
+                    windowManager.removeView(group);
+                } catch (Exception ignored) {
+                }
+            }
+            return;
+        }
+        try {
+            windowManager.removeView(overlayView);
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * Icon padding comes from an sp dimension set at inflation; a font-scale change done in place
+     * has to re-apply it, or the icons keep the old inset while masks are built for the new one.
+     */
+    private void applyIconPadding() {
+        int insetX = getResources().getDimensionPixelOffset(R.dimen.iconPaddingHorizontal);
+        for (View icon : new View[]{binding.wifiStatusIcon, binding.gnssStatusIcon,
+                binding.bluetoothStatusIcon}) {
+            if (icon.getPaddingLeft() != insetX || icon.getPaddingRight() != insetX) {
+                icon.setPadding(insetX, icon.getPaddingTop(), insetX, icon.getPaddingBottom());
+            }
+        }
+    }
+
     @Override
     public void onConfigurationChanged(@NonNull Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
-        // Re-create date/time formatters so a locale change is reflected.
-        timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
-        currentDateFormatPattern = null;
+        // Locale change: new day and month names.
+        clock.setLocale(Locale.getDefault());
         // If the user is in "follow system" mode, the system uiMode flip means the cached
         // themedContext now points at the wrong configuration — invalidate so the next
         // applyPreferences() rebuilds it.
         themedContext = null;
         appliedThemePref = -1;
 
-        if (binding != null) {
-            windowManager.removeView(binding.getRoot());
+        if (overlayView == null) return;
+        if (newConfig.densityDpi != overlayDensityDpi) {
+            // Every pixel size, outline mask and cached layer is density-bound — start over.
+            detachOverlay();
             createOverlayView();
+            return;
         }
+        // Locale, uiMode, rotation, font scale: keep the window and views, re-resolve colours
+        // and texts and re-measure. Views get the new configuration dispatched by their window.
+        if (surface == null) {
+            applyIconPadding();
+        }
+        applyPreferences();
+        overlayView.requestLayout();
     }
 
     @SuppressLint("MissingPermission")
     public void applyPreferences() {
-        hiddenInPackages = prefs.hideInPackages.get();
-        rebuildEffectiveHideLists();
+        if (overlayView != null && ((surface != null) != (snapshot().renderMode == RENDER_MODE_SURFACE)
+                || splitWindows != useSplitWindows(snapshot()))) {
+            // Render mode or window split switched: build the other kind of root. createOverlayView()
+            // re-enters here with the matching root.
+            detachOverlay();
+            createOverlayView();
+            return;
+        }
         updateForegroundAppTracking();
         updateThemedContext();
 
         updateBackground();
         updateDateTime();
 
-        List<BrickType> bricks = BrickType.parseOrder(prefs.brickOrder.get());
-        Set<BrickType> bricksSet = EnumSet.noneOf(BrickType.class);
-        bricksSet.addAll(bricks);
+        List<BrickType> bricks = snapshot().brickOrder;
+        Set<BrickType> bricksSet = snapshot().bricks;
 
         // Reorder children of the root LinearLayout to match brickOrder. Hidden bricks are
         // appended at the end with View.GONE — kept attached so we don't need to re-bind state.
@@ -541,34 +803,17 @@ public class WidgetService extends Service {
 
         applyBrickVisibility(bricksSet);
         applyOverlayPosition();
+        prewarmOutlineMasks();
 
         // Re-apply icon style for the current state — icon style and outline may have changed.
         updateWifiStatus();
         updateGnssStatus();
         updateBluetoothStatus();
 
-        // User-controllable global padding around the widget content (four independent sides).
-        // Was previously auto-computed as half of the largest brick dimension — many users found
-        // it too wide on small head units, so it's now explicit prefs. Slight outline clipping
-        // at thin paddings is acceptable.
-        binding.getRoot().setPadding(
-                prefs.paddingLeft.get(),
-                prefs.paddingTop.get(),
-                prefs.paddingRight.get(),
-                prefs.paddingBottom.get());
-
-        // Lock the widget height to the tallest brick that's in the user's chosen order —
-        // including bricks currently hidden per-app. Otherwise hiding e.g. a big Time brick
-        // would let the row shrink vertically and the remaining icons would re-center up,
-        // breaking alignment with the device status bar that users carefully tune.
-        binding.getRoot().setMinimumHeight(computeMinWidgetHeight(bricksSet));
+        applyWidgetPadding();
+        applyMinimumHeight(bricksSet);
 
-        mainHandler.removeCallbacks(updateDateTimeRunnable);
-        if (bricksSet.contains(BrickType.TIME) || bricksSet.contains(BrickType.DATE)) {
-            long now = System.currentTimeMillis();
-            long delay = DATETIME_UPDATE_INTERVAL_MS - (now % DATETIME_UPDATE_INTERVAL_MS);
-            mainHandler.postDelayed(updateDateTimeRunnable, delay);
-        }
+        scheduleDateTimeUpdates();
 
         if (bricksSet.contains(BrickType.WIFI)) {
             if (connectivityManager == null) {
@@ -607,17 +852,15 @@ public class WidgetService extends Service {
 
                 locationManager.registerGnssStatusCallback(gnssStatusCallback, mainHandler);
                 locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, 1000, 0, locationListener, Looper.getMainLooper());
-                mainHandler.postDelayed(updateGnssStatusRunnable, GNSS_STATUS_CHECK_INTERVAL);
-            }
-            if (prefs.gps.showSatelliteBadge.get()) {
-                registerSatelliteStatusReceiver();
-            } else {
-                unregisterSatelliteStatusReceiver();
+                scheduleGnssDeadlines();
             }
+            updateSatelliteStatusReceiver();
             updateGnssStatus();
         } else if (locationManager != null) {
-            mainHandler.removeCallbacks(updateGnssStatusRunnable);
+            mainHandler.removeCallbacks(gnssBadDeadline);
+            mainHandler.removeCallbacks(gnssOffDeadline);
             unregisterSatelliteStatusReceiver();
+            gnssSatellites.reset();
             locationManager.removeUpdates(locationListener);
             locationManager.unregisterGnssStatusCallback(gnssStatusCallback);
             locationManager = null;
@@ -636,12 +879,213 @@ public class WidgetService extends Service {
             enableMediaTracking();
         } else {
             disableMediaTracking();
-            binding.mediaContainer.setVisibility(View.GONE);
+            setBrickVisibility(BrickType.MEDIA, View.GONE);
+        }
+    }
+
+    /**
+     * Incremental counterpart of {@link #applyPreferences()} for a single changed pref. Settings
+     * sliders fire on every drag step, and a full apply per step re-parses the brick order,
+     * re-resolves every typeface and re-lays out all six bricks. Here the key's brick prefix
+     * (see {@link Preferences.TextBrickPrefs#prefix} / {@link Preferences.IconBrickPrefs#prefix})
+     * picks the one brick or window param to refresh. Keys that change the brick set, status-bar
+     * grouping or per-app hiding still go through the full path, as does a {@code null} key
+     * (bulk change such as a brick reset).
+     */
+    public void applyPreference(@Nullable String key) {
+        if (overlayView == null) return;
+        if (key == null || isStructuralKey(key)) {
+            applyPreferences();
+            return;
+        }
+
+        if (key.startsWith(prefs.time.prefix)) {
+            applyTimeBrickSettings();
+            updateDateTime();
+            scheduleDateTimeUpdates();
+            applyMinimumHeight(currentBrickSet());
+        } else if (key.startsWith(prefs.date.prefix)) {
+            Set<BrickType> bricksSet = currentBrickSet();
+            applyDateBrickSettings();
+            updateDateTime();
+            applyBrickVisibility(bricksSet);
+            applyMinimumHeight(bricksSet);
+        } else if (key.startsWith(prefs.media.prefix)) {
+            applyMediaBrickSettings();
+            updateMediaInfo();
+            applyMinimumHeight(currentBrickSet());
+        } else if (key.startsWith(prefs.wifi.prefix)) {
+            applyWifiBrickSettings();
+            prewarmOutlineMasks();
+            updateWifiStatus();
+            applyMinimumHeight(currentBrickSet());
+        } else if (key.startsWith(prefs.gps.prefix)) {
+            applyGpsBrickSettings();
+            prewarmOutlineMasks();
+            if (locationManager != null) {
+                updateSatelliteStatusReceiver();
+                scheduleGnssDeadlines();
+            }
+            updateGnssStatus();
+            applyMinimumHeight(currentBrickSet());
+        } else if (key.startsWith(prefs.bluetooth.prefix)) {
+            applyBluetoothBrickSettings();
+            prewarmOutlineMasks();
+            updateBluetoothStatus();
+            applyMinimumHeight(currentBrickSet());
+        } else if (key.equals(prefs.overlayX.key) || key.equals(prefs.overlayY.key)
+                || key.equals(prefs.widgetAlignRight.key)) {
+            applyOverlayPosition();
+        } else if (key.equals(prefs.dragSnapEdges.key) || key.equals(prefs.dragSnapGrid.key)) {
+            // Read on the next drag release.
+        } else if (key.startsWith("padding")) {
+            applyWidgetPadding();
+        } else if (key.equals(prefs.backgroundAlpha.key) || key.equals(prefs.backgroundCornerRadius.key)) {
+            if (splitWindows != useSplitWindows(snapshot())) {
+                // The background became visible (or invisible) — split windows can't draw it.
+                applyPreferences();
+                return;
+            }
+            updateBackground();
+        } else if (key.equals(prefs.iconDesign.key) || key.equals(prefs.iconStyle.key)) {
+            prewarmOutlineMasks();
+            updateWifiStatus();
+            updateGnssStatus();
+            updateBluetoothStatus();
+        } else {
+            applyPreferences();
+        }
+    }
+
+    /**
+     * Keys that change which bricks are laid out, where they sit, the theme every colour is
+     * resolved against or whether a brick is hidden per-app. Those need the full
+     * {@link #applyPreferences()}.
+     */
+    private boolean isStructuralKey(String key) {
+        return key.equals(prefs.brickOrder.key)
+                || key.equals(prefs.widgetMode.key)
+                || key.equals(prefs.renderMode.key)
+                || key.equals(prefs.statusBarSplitWindows.key)
+                || key.equals(prefs.widgetTheme.key)
+                || key.equals(prefs.hideInPackages.key)
+                || key.endsWith("StatusAlignment")
+                || key.endsWith("HideInPackages")
+                || key.endsWith("HideSource")
+                || key.endsWith("HideKeepsSpace");
+    }
+
+    /**
+     * Current preference values. Rebuilt lazily after {@link #prefsChangeListener} drops it, so a
+     * bulk edit (brick reset, settings import) costs one rebuild rather than one per key.
+     */
+    private PreferencesSnapshot snapshot() {
+        if (snapshot == null) {
+            snapshot = new PreferencesSnapshot(prefs);
+        }
+        return snapshot;
+    }
+
+    private void applyWidgetPadding() {
+        // User-controllable global padding around the widget content (four independent sides).
+        // Was previously auto-computed as half of the largest brick dimension — many users found
+        // it too wide on small head units, so it's now explicit prefs. Slight outline clipping
+        // at thin paddings is acceptable.
+        PreferencesSnapshot s = snapshot();
+        if (splitWindows) {
+            // Left and right padding are window positions there.
+            for (View group : groupWindows) {
+                group.setPadding(0, s.paddingTop, 0, s.paddingBottom);
+            }
+            layoutGroupWindows();
+            return;
+        }
+        overlayView.setPadding(s.paddingLeft, s.paddingTop, s.paddingRight, s.paddingBottom);
+    }
+
+    private void applyMinimumHeight(Set<BrickType> bricksSet) {
+        // Lock the widget height to the tallest brick that's in the user's chosen order —
+        // including bricks currently hidden per-app. Otherwise hiding e.g. a big Time brick
+        // would let the row shrink vertically and the remaining icons would re-center up,
+        // breaking alignment with the device status bar that users carefully tune.
+        int minHeight = computeMinWidgetHeight(bricksSet);
+        // setMinimumHeight() requests a layout unconditionally. Split group windows each get
+        // the strip height, so their bricks stay centred on the same line.
+        if (splitWindows) {
+            for (View group : groupWindows) {
+                if (group.getMinimumHeight() != minHeight) {
+                    group.setMinimumHeight(minHeight);
+                }
+            }
+            return;
+        }
+        if (overlayView.getMinimumHeight() != minHeight) {
+            overlayView.setMinimumHeight(minHeight);
+        }
+    }
+
+    /**
+     * Queues outline masks for every state of each outlined icon brick in the current design, so
+     * neither a settings change nor the first state flip after boot waits for the worker.
+     */
+    private void prewarmOutlineMasks() {
+        PreferencesSnapshot s = snapshot();
+        int[][] design = ICON_DESIGNS[Math.min(Math.max(0, s.iconDesign), ICON_DESIGNS.length - 1)];
+        int insetX = getResources().getDimensionPixelOffset(R.dimen.iconPaddingHorizontal);
+        prewarmOutlineMasks(BrickType.WIFI, s.wifi, design[ICON_TYPE_WIFI], insetX);
+        prewarmOutlineMasks(BrickType.GPS, s.gps, design[ICON_TYPE_GNSS], insetX);
+        prewarmOutlineMasks(BrickType.BLUETOOTH, s.bluetooth, design[ICON_TYPE_BT], insetX);
+    }
+
+    private void prewarmOutlineMasks(BrickType type, PreferencesSnapshot.IconBrick p, int[] resIds,
+                                     int insetX) {
+        if (!snapshot().bricks.contains(type) || p.outlineAlpha <= 0) return;
+        OutlineMaskCache.prewarm(this, resIds, p.size, p.size, insetX, p.outlineWidth);
+    }
+
+    /**
+     * Satellite count for the GPS badge: used in the fix per the platform status, or the GNSS
+     * Share count when the platform reports no satellites. 0 hides the badge.
+     */
+    private int satellitesBadgeCount() {
+        if (gnssSatellites.hasData(SystemClock.elapsedRealtime())) {
+            return gnssSatellites.usedInFix;
+        }
+        if (satellitesCount > 0
+                && System.currentTimeMillis() - satellitesCountTimestamp < GNSSSHARE_SATELLITE_STATUS_TIMEOUT_MS) {
+            return satellitesCount;
+        }
+        return 0;
+    }
+
+    /** Redraws the GPS icon only if the badge number would change. */
+    private void updateSatellitesBadge() {
+        int count = satellitesBadgeCount();
+        if (count == shownSatellitesCount) return;
+        Log.d(TAG, "GNSS satellites: " + gnssSatellites.usedInFix + " used, "
+                + gnssSatellites.visible + " visible, mean C/N0 " + gnssSatellites.meanCn0DbHz
+                + " dB-Hz; GNSS Share: " + satellitesCount);
+        updateGnssStatus();
+    }
+
+    private void updateSatelliteStatusReceiver() {
+        if (snapshot().gps.showSatelliteBadge) {
+            registerSatelliteStatusReceiver();
+        } else {
+            unregisterSatelliteStatusReceiver();
         }
     }
 
     private void reorderBricks(List<BrickType> bricks) {
-        if (prefs.widgetMode.get() == WIDGET_MODE_STATUS_BAR) {
+        if (surface != null) {
+            surface.setStatusBarMode(snapshot().widgetMode == WIDGET_MODE_STATUS_BAR);
+            surface.setBrickOrder(bricks);
+            for (BrickType type : BrickType.values()) {
+                surface.setStatusAlignment(type, clampAlignment(snapshot().statusAlignmentFor(type)));
+            }
+            return;
+        }
+        if (snapshot().widgetMode == WIDGET_MODE_STATUS_BAR) {
             reorderForStatusBar(bricks);
         } else {
             reorderForFloating(bricks);
@@ -690,13 +1134,16 @@ public class WidgetService extends Service {
         binding.endGroup.removeAllViews();
 
         // Root order: startGroup, spacer, centerGroup, spacer, endGroup. Hidden bricks dangle off
-        // the root after these so they remain attached but invisible.
+        // the root after these so they remain attached but invisible. Split windows take the
+        // groups out of the root for good; it keeps just the hidden bricks.
         List<View> rootChildren = new ArrayList<>();
-        rootChildren.add(binding.startGroup);
-        rootChildren.add(binding.startCenterSpacer);
-        rootChildren.add(binding.centerGroup);
-        rootChildren.add(binding.centerEndSpacer);
-        rootChildren.add(binding.endGroup);
+        if (!splitWindows) {
+            rootChildren.add(binding.startGroup);
+            rootChildren.add(binding.startCenterSpacer);
+            rootChildren.add(binding.centerGroup);
+            rootChildren.add(binding.centerEndSpacer);
+            rootChildren.add(binding.endGroup);
+        }
         for (BrickType type : BrickType.values()) {
             if (!bricks.contains(type)) {
                 View v = viewForBrick(type);
@@ -709,13 +1156,20 @@ public class WidgetService extends Service {
         for (BrickType type : bricks) {
             View v = viewForBrick(type);
             if (v == null) continue;
-            int alignment = clampAlignment(prefs.statusAlignmentFor(type).get());
+            int alignment = clampAlignment(snapshot().statusAlignmentFor(type));
             LinearLayout target = (alignment == 1) ? binding.centerGroup
                     : (alignment == 2) ? binding.endGroup
                     : binding.startGroup;
             target.addView(v);
         }
 
+        if (splitWindows) {
+            // An empty group window gets no surface at all.
+            for (LinearLayout group : groupWindows) {
+                group.setVisibility(group.getChildCount() > 0 ? View.VISIBLE : View.GONE);
+            }
+            return;
+        }
         binding.startGroup.setVisibility(View.VISIBLE);
         binding.centerGroup.setVisibility(View.VISIBLE);
         binding.endGroup.setVisibility(View.VISIBLE);
@@ -748,6 +1202,7 @@ public class WidgetService extends Service {
 
     @Nullable
     private View viewForBrick(BrickType type) {
+        if (binding == null) return null;
         switch (type) {
             case TIME:
                 return binding.timeText;
@@ -767,12 +1222,46 @@ public class WidgetService extends Service {
     }
 
     private void applyTimeBrickSettings() {
-        applySingleLineTextBrick(binding.timeText, prefs.time);
+        if (surface != null) {
+            // The surface draws clock digits in fixed slots itself (see StatusWidgetView.TextLine).
+            applySurfaceTextBrick(BrickType.TIME, snapshot().time);
+            return;
+        }
+        OutlineTextView view = binding.timeText;
+        applySingleLineTextBrick(view, snapshot().time);
+        // A fixed width makes TextView swap the layout in place on each tick instead of asking
+        // for a layout pass (and, right-anchored, a window move) whenever 11:11 becomes 11:12.
+        // Tabular figures keep the digits from shifting inside it where the font has them.
+        if (!TABULAR_FIGURES.equals(view.getFontFeatureSettings())) {
+            view.setFontFeatureSettings(TABULAR_FIGURES);
+        }
+        int width = ClockFormatter.reservedTimeWidth(view.getPaint(), snapshot().time.showSeconds)
+                + view.getCompoundPaddingLeft() + view.getCompoundPaddingRight();
+        ViewGroup.LayoutParams lp = view.getLayoutParams();
+        if (lp.width != width) {
+            lp.width = width;
+            view.setLayoutParams(lp);
+        }
     }
 
     private void applyDateBrickSettings() {
-        applySingleLineTextBrick(binding.dateText, prefs.date);
-        switch (prefs.date.alignment.get()) {
+        PreferencesSnapshot.DateBrick d = snapshot().date;
+        if (surface != null) {
+            applySurfaceTextBrick(BrickType.DATE, d);
+            surface.setLineAlignment(BrickType.DATE, d.alignment);
+            metricsPaint.setTypeface(Fonts.resolve(this, d.fontFamily, d.fontBold, d.fontItalic));
+            metricsPaint.setTextSize(d.fontSize);
+            surface.setMinTextWidth(BrickType.DATE, widestDateWidth(metricsPaint, d));
+            return;
+        }
+        applySingleLineTextBrick(binding.dateText, d);
+        // Room for the longest day and month names, so the brick doesn't resize at midnight.
+        int minWidth = widestDateWidth(binding.dateText.getPaint(), d)
+                + binding.dateText.getCompoundPaddingLeft() + binding.dateText.getCompoundPaddingRight();
+        if (binding.dateText.getMinWidth() != minWidth) {
+            binding.dateText.setMinWidth(minWidth);
+        }
+        switch (snapshot().date.alignment) {
             case 1:
                 binding.dateText.setGravity(Gravity.CENTER_HORIZONTAL);
                 break;
@@ -786,26 +1275,36 @@ public class WidgetService extends Service {
     }
 
     private void applyMediaBrickSettings() {
-        int outlineColor = textOutlineColor(prefs.media.outlineAlpha.get());
-        int textColor = ContextCompat.getColor(themedContext, R.color.text_primary);
-        Typeface typeface = Fonts.resolve(this, prefs.media.fontFamily.get(),
-                prefs.media.fontBold.get(), prefs.media.fontItalic.get());
+        PreferencesSnapshot.MediaBrick media = snapshot().media;
+        if (surface != null) {
+            applySurfaceTextBrick(BrickType.MEDIA, media);
+            surface.setMediaMaxWidth(media.maxWidth);
+            surface.setMediaShowSource(media.showSource);
+            surface.setMediaMarqueeFps(media.marqueeFps);
+            surface.setLineAlignment(BrickType.MEDIA, media.alignment);
+            return;
+        }
+        int outlineColor = palette.outline(media.outlineAlpha);
+        int textColor = palette.textPrimary;
+        Typeface typeface = Fonts.resolve(this, media.fontFamily, media.fontBold, media.fontItalic);
         binding.mediaAppText.setOutlineColor(outlineColor);
-        binding.mediaAppText.setOutlineWidth(prefs.media.outlineWidth.get());
+        binding.mediaAppText.setOutlineWidth(media.outlineWidth);
         binding.mediaAppText.setTextColor(textColor);
-        binding.mediaAppText.setTypeface(typeface);
+        applyTypeface(binding.mediaAppText, typeface);
         binding.mediaTitleText.setOutlineColor(outlineColor);
-        binding.mediaTitleText.setOutlineWidth(prefs.media.outlineWidth.get());
+        binding.mediaTitleText.setOutlineWidth(media.outlineWidth);
         binding.mediaTitleText.setTextColor(textColor);
-        binding.mediaTitleText.setTypeface(typeface);
-        binding.mediaAppText.setTextSize(TypedValue.COMPLEX_UNIT_PX, prefs.media.fontSize.get());
-        binding.mediaTitleText.setTextSize(TypedValue.COMPLEX_UNIT_PX, prefs.media.fontSize.get());
-        applyHorizontalMargins(binding.mediaContainer, prefs.media.marginStart.get(), prefs.media.marginEnd.get());
-        binding.mediaContainer.setTranslationY(prefs.media.adjustY.get());
-        applyMediaMaxWidth(binding.mediaAppText);
-        applyMediaMaxWidth(binding.mediaTitleText);
-        applyMediaChildAlignment(binding.mediaAppText, prefs.media.alignment.get());
-        applyMediaChildAlignment(binding.mediaTitleText, prefs.media.alignment.get());
+        applyTypeface(binding.mediaTitleText, typeface);
+        applyTextSize(binding.mediaAppText, media.fontSize);
+        applyTextSize(binding.mediaTitleText, media.fontSize);
+        applyHorizontalMargins(binding.mediaContainer, media.marginStart, media.marginEnd);
+        binding.mediaContainer.setTranslationY(media.adjustY);
+        applyMediaMaxWidth(binding.mediaAppText, media.maxWidth);
+        applyMediaMaxWidth(binding.mediaTitleText, media.maxWidth);
+        binding.mediaAppText.setMarqueeFps(media.marqueeFps);
+        binding.mediaTitleText.setMarqueeFps(media.marqueeFps);
+        applyMediaChildAlignment(binding.mediaAppText, media.alignment);
+        applyMediaChildAlignment(binding.mediaTitleText, media.alignment);
     }
 
     /**
@@ -821,77 +1320,103 @@ public class WidgetService extends Service {
             case 2: gravity = Gravity.END; break;
             default: gravity = Gravity.START; break;
         }
+        if (lp.gravity == gravity) return;
         lp.gravity = gravity;
         view.setLayoutParams(lp);
     }
 
-    private void applyMediaMaxWidth(OutlineTextView view) {
-        int maxWidth = prefs.media.maxWidth.get();
+    private static void applyMediaMaxWidth(OutlineTextView view, int maxWidth) {
         ViewGroup.LayoutParams lp = view.getLayoutParams();
         // Wrap to content but never exceed the user-chosen maximum — short texts stay short,
         // long ones cap at maxWidth and switch to marquee scrolling.
-        lp.width = ViewGroup.LayoutParams.WRAP_CONTENT;
-        view.setLayoutParams(lp);
-        view.setMaxWidth(maxWidth);
-        view.setSingleLine(true);
-        view.setEllipsize(android.text.TextUtils.TruncateAt.MARQUEE);
-        view.setMarqueeRepeatLimit(-1); // marquee_forever
-        // Marquee only animates while the view "is selected"; force it on so a static overlay
-        // (which never receives input focus) still scrolls long titles.
-        view.setSelected(true);
+        if (lp.width != ViewGroup.LayoutParams.WRAP_CONTENT) {
+            lp.width = ViewGroup.LayoutParams.WRAP_CONTENT;
+            view.setLayoutParams(lp);
+        }
+        if (view.getMaxWidth() != maxWidth) {
+            view.setMaxWidth(maxWidth);
+        }
+        view.setMarquee(true);
     }
 
     private void applyWifiBrickSettings() {
-        ViewGroup.LayoutParams ip = binding.wifiStatusIcon.getLayoutParams();
-        ip.width = prefs.wifi.size.get();
-        ip.height = prefs.wifi.size.get();
-        binding.wifiStatusIcon.setLayoutParams(ip);
-        applyHorizontalMargins(binding.wifiStatusIcon, prefs.wifi.marginStart.get(), prefs.wifi.marginEnd.get());
-        binding.wifiStatusIcon.setTranslationY(prefs.wifi.adjustY.get());
+        applyIconBrick(BrickType.WIFI, snapshot().wifi);
     }
 
     private void applyGpsBrickSettings() {
-        ViewGroup.LayoutParams ip = binding.gnssStatusIcon.getLayoutParams();
-        ip.width = prefs.gps.size.get();
-        ip.height = prefs.gps.size.get();
-        binding.gnssStatusIcon.setLayoutParams(ip);
-        applyHorizontalMargins(binding.gnssStatusIcon, prefs.gps.marginStart.get(), prefs.gps.marginEnd.get());
-        binding.gnssStatusIcon.setTranslationY(prefs.gps.adjustY.get());
+        applyIconBrick(BrickType.GPS, snapshot().gps);
     }
 
     private void applyBluetoothBrickSettings() {
-        ViewGroup.LayoutParams ip = binding.bluetoothStatusIcon.getLayoutParams();
-        ip.width = prefs.bluetooth.size.get();
-        ip.height = prefs.bluetooth.size.get();
-        binding.bluetoothStatusIcon.setLayoutParams(ip);
-        applyHorizontalMargins(binding.bluetoothStatusIcon,
-                prefs.bluetooth.marginStart.get(), prefs.bluetooth.marginEnd.get());
-        binding.bluetoothStatusIcon.setTranslationY(prefs.bluetooth.adjustY.get());
+        applyIconBrick(BrickType.BLUETOOTH, snapshot().bluetooth);
+    }
+
+    private void applyIconBrick(BrickType type, PreferencesSnapshot.IconBrick p) {
+        if (surface != null) {
+            surface.setIconSize(type, p.size);
+            surface.setBrickMargins(type, p.marginStart, p.marginEnd);
+            surface.setBrickAdjustY(type, p.adjustY);
+            return;
+        }
+        View view = viewForBrick(type);
+        applyIconSize(view, p.size);
+        applyHorizontalMargins(view, p.marginStart, p.marginEnd);
+        view.setTranslationY(p.adjustY);
+    }
+
+    private void applySurfaceTextBrick(BrickType type, PreferencesSnapshot.TextBrick p) {
+        surface.setTextStyle(type,
+                Fonts.resolve(this, p.fontFamily, p.fontBold, p.fontItalic),
+                p.fontSize,
+                palette.textPrimary,
+                palette.outline(p.outlineAlpha),
+                p.outlineWidth);
+        surface.setBrickMargins(type, p.marginStart, p.marginEnd);
+        surface.setBrickAdjustY(type, p.adjustY);
+    }
+
+    private void applySingleLineTextBrick(OutlineTextView view, PreferencesSnapshot.TextBrick p) {
+        view.setTextColor(palette.textPrimary);
+        view.setOutlineColor(palette.outline(p.outlineAlpha));
+        view.setOutlineWidth(p.outlineWidth);
+        applyTypeface(view, Fonts.resolve(this, p.fontFamily, p.fontBold, p.fontItalic));
+        applyTextSize(view, p.fontSize);
+        view.setTranslationY(p.adjustY);
+        applyHorizontalMargins(view, p.marginStart, p.marginEnd);
+    }
+
+    // The apply* helpers below skip no-op writes: setLayoutParams() always requests a layout of
+    // the whole overlay, and applyPreference() runs them on every slider step.
+
+    private static void applyTypeface(TextView view, Typeface typeface) {
+        if (!typeface.equals(view.getTypeface())) {
+            view.setTypeface(typeface);
+        }
     }
 
-    private void applySingleLineTextBrick(OutlineTextView view, Preferences.TextBrickPrefs p) {
-        view.setTextColor(ContextCompat.getColor(themedContext, R.color.text_primary));
-        view.setOutlineColor(textOutlineColor(p.outlineAlpha.get()));
-        view.setOutlineWidth(p.outlineWidth.get());
-        view.setTypeface(Fonts.resolve(this, p.fontFamily.get(), p.fontBold.get(), p.fontItalic.get()));
-        view.setTextSize(TypedValue.COMPLEX_UNIT_PX, p.fontSize.get());
-        view.setTranslationY(p.adjustY.get());
-        applyHorizontalMargins(view, p.marginStart.get(), p.marginEnd.get());
+    private static void applyTextSize(TextView view, int sizePx) {
+        if (view.getTextSize() != sizePx) {
+            view.setTextSize(TypedValue.COMPLEX_UNIT_PX, sizePx);
+        }
     }
 
-    private int textOutlineColor(int alpha) {
-        return (ContextCompat.getColor(themedContext, R.color.text_outline) & 0x00FFFFFF) | (alpha << 24);
+    private static void applyIconSize(View view, int size) {
+        ViewGroup.LayoutParams lp = view.getLayoutParams();
+        if (lp.width == size && lp.height == size) return;
+        lp.width = size;
+        lp.height = size;
+        view.setLayoutParams(lp);
     }
 
     /**
-     * Rebuilds {@link #themedContext} so theme-dependent colour lookups respect the user's
-     * "Widget theme" preference. Pref values: 0 = follow system, 1 = always light, 2 = always
+     * Rebuilds {@link #themedContext} and its {@link #palette} so the overlay colours respect the
+     * user's "Widget theme" preference. Pref values: 0 = follow system, 1 = always light, 2 = always
      * dark, 3 = inverse of system. Cached so we don't allocate a new Context on every
      * {@code applyPreferences()}; {@code onConfigurationChanged} invalidates the cache so the
      * inverse mode picks up system theme changes too.
      */
     private void updateThemedContext() {
-        int pref = prefs.widgetTheme.get();
+        int pref = snapshot().widgetTheme;
         if (themedContext != null && pref == appliedThemePref) return;
         if (pref == 0) {
             themedContext = this;
@@ -912,63 +1437,76 @@ public class WidgetService extends Service {
             cfg.uiMode = (cfg.uiMode & ~Configuration.UI_MODE_NIGHT_MASK) | uiMode;
             themedContext = createConfigurationContext(cfg);
         }
+        palette = WidgetPalette.from(themedContext);
         appliedThemePref = pref;
     }
 
     private static void applyHorizontalMargins(View view, int start, int end) {
         LinearLayout.LayoutParams lp = (LinearLayout.LayoutParams) view.getLayoutParams();
+        if (lp.getMarginStart() == start && lp.getMarginEnd() == end) return;
         lp.setMarginStart(start);
         lp.setMarginEnd(end);
         view.setLayoutParams(lp);
     }
 
-    private final EnumMap<BrickType, Set<String>> effectiveHideLists = new EnumMap<>(BrickType.class);
-
-    private void rebuildEffectiveHideLists() {
-        effectiveHideLists.clear();
-        for (BrickType type : BrickType.values()) {
-            BrickType source = prefs.effectiveHideSourceFor(type);
-            effectiveHideLists.put(type, prefs.hideListFor(source).get());
-        }
-    }
-
     private boolean isBrickHiddenByApp(BrickType type) {
-        if (lastForegroundPackage == null) return false;
-        Set<String> list = effectiveHideLists.get(type);
-        return list != null && list.contains(lastForegroundPackage);
+        return (hiddenBricks & HideIndex.bit(type)) != 0;
     }
 
-    private boolean anyBrickHasHideList() {
-        for (Set<String> s : effectiveHideLists.values()) {
-            if (s != null && !s.isEmpty()) return true;
-        }
-        return false;
+    /** Settings changed: looks the foreground app up in the new index and redoes every brick. */
+    private void applyBrickVisibility(Set<BrickType> bricksSet) {
+        hiddenBricks = snapshot().hideIndex().lookup(lastForegroundPackage, lastForegroundClass)
+                & HideIndex.ALL_BRICKS;
+        applyBrickVisibility(bricksSet, HideIndex.ALL_BRICKS);
     }
 
-    private void applyBrickVisibility(Set<BrickType> bricksSet) {
-        if (binding == null) return;
-        binding.timeText.setVisibility(brickVisibility(BrickType.TIME,
-                bricksSet.contains(BrickType.TIME)));
-        boolean dateActive = bricksSet.contains(BrickType.DATE)
-                && (prefs.date.showDate.get() || prefs.date.showDayOfWeek.get());
-        binding.dateText.setVisibility(brickVisibility(BrickType.DATE, dateActive));
-        binding.wifiStatusIcon.setVisibility(brickVisibility(BrickType.WIFI,
-                bricksSet.contains(BrickType.WIFI)));
-        binding.gnssStatusIcon.setVisibility(brickVisibility(BrickType.GPS,
-                bricksSet.contains(BrickType.GPS)));
-        binding.bluetoothStatusIcon.setVisibility(brickVisibility(BrickType.BLUETOOTH,
-                bricksSet.contains(BrickType.BLUETOOTH)));
+    /** Recomputes the visibility of the bricks in {@code types} ({@link HideIndex} bits). */
+    private void applyBrickVisibility(Set<BrickType> bricksSet, int types) {
+        if (overlayView == null) return;
+        if ((types & HideIndex.bit(BrickType.TIME)) != 0) {
+            setBrickVisibility(BrickType.TIME, brickVisibility(BrickType.TIME,
+                    bricksSet.contains(BrickType.TIME)));
+        }
+        if ((types & HideIndex.bit(BrickType.DATE)) != 0) {
+            boolean dateActive = bricksSet.contains(BrickType.DATE)
+                    && (snapshot().date.showDate || snapshot().date.showDayOfWeek);
+            setBrickVisibility(BrickType.DATE, brickVisibility(BrickType.DATE, dateActive));
+        }
+        if ((types & HideIndex.bit(BrickType.WIFI)) != 0) {
+            setBrickVisibility(BrickType.WIFI, brickVisibility(BrickType.WIFI,
+                    bricksSet.contains(BrickType.WIFI)));
+        }
+        if ((types & HideIndex.bit(BrickType.GPS)) != 0) {
+            setBrickVisibility(BrickType.GPS, brickVisibility(BrickType.GPS,
+                    bricksSet.contains(BrickType.GPS)));
+        }
+        if ((types & HideIndex.bit(BrickType.BLUETOOTH)) != 0) {
+            setBrickVisibility(BrickType.BLUETOOTH, brickVisibility(BrickType.BLUETOOTH,
+                    bricksSet.contains(BrickType.BLUETOOTH)));
+        }
+        if ((types & HideIndex.bit(BrickType.MEDIA)) == 0) return;
         // Media visibility is also gated by the active media session — see updateMediaInfo().
         if (!bricksSet.contains(BrickType.MEDIA)) {
-            binding.mediaContainer.setVisibility(View.GONE);
+            setBrickVisibility(BrickType.MEDIA, View.GONE);
         } else if (isBrickHiddenByApp(BrickType.MEDIA)) {
-            binding.mediaContainer.setVisibility(
-                    prefs.hideKeepsSpaceFor(BrickType.MEDIA).get() ? View.INVISIBLE : View.GONE);
+            setBrickVisibility(BrickType.MEDIA,
+                    snapshot().hideIndex().keepsSpace(BrickType.MEDIA) ? View.INVISIBLE : View.GONE);
         } else {
             updateMediaInfo();
         }
     }
 
+    private void setBrickVisibility(BrickType type, int visibility) {
+        if (surface != null) {
+            surface.setBrickVisibility(type, visibility);
+            return;
+        }
+        View view = viewForBrick(type);
+        if (view != null) {
+            view.setVisibility(visibility);
+        }
+    }
+
     /**
      * Resolves the {@code View} visibility constant for a brick. When the brick isn't part of the
      * current layout at all (or is otherwise inactive — e.g. Date with both flags off) we
@@ -980,15 +1518,13 @@ public class WidgetService extends Service {
     private int brickVisibility(BrickType type, boolean activeInLayout) {
         if (!activeInLayout) return View.GONE;
         if (isBrickHiddenByApp(type)) {
-            return prefs.hideKeepsSpaceFor(type).get() ? View.INVISIBLE : View.GONE;
+            return snapshot().hideIndex().keepsSpace(type) ? View.INVISIBLE : View.GONE;
         }
         return View.VISIBLE;
     }
 
     private Set<BrickType> currentBrickSet() {
-        Set<BrickType> set = EnumSet.noneOf(BrickType.class);
-        set.addAll(BrickType.parseOrder(prefs.brickOrder.get()));
-        return set;
+        return snapshot().bricks;
     }
 
     /**
@@ -996,44 +1532,48 @@ public class WidgetService extends Service {
      * {@code brickOrder}, regardless of per-app visibility. Used as the widget's minimum height so
      * a brick disappearing on a particular app doesn't shrink the row.
      *
-     * Text bricks use {@link Paint#getFontMetrics()} on a copy of the TextView's paint at the
-     * given pixel size — this matches exactly the height the TextView itself would measure for a
-     * single line (with {@code includeFontPadding=true}, the default).
+     * Text bricks use {@link Paint#getFontMetrics()} for the brick's typeface at the given pixel
+     * size — this matches exactly the height a TextView (or a StaticLayout with
+     * {@code includePad=true}) measures for a single line.
      */
     private int computeMinWidgetHeight(Set<BrickType> bricks) {
+        PreferencesSnapshot s = snapshot();
         int h = 0;
         if (bricks.contains(BrickType.TIME)) {
-            h = Math.max(h, textLineHeight(binding.timeText, prefs.time.fontSize.get()));
+            h = Math.max(h, textLineHeight(s.time));
         }
         if (bricks.contains(BrickType.DATE)) {
             // Two lines when day-of-week + date are both shown and not collapsed into one line.
-            int lines = (prefs.date.showDate.get() && prefs.date.showDayOfWeek.get()
-                    && !prefs.date.oneLineLayout.get()) ? 2 : 1;
-            h = Math.max(h, textLineHeight(binding.dateText, prefs.date.fontSize.get()) * lines);
+            int lines = (s.date.showDate && s.date.showDayOfWeek && !s.date.oneLineLayout) ? 2 : 1;
+            h = Math.max(h, textLineHeight(s.date) * lines);
         }
         if (bricks.contains(BrickType.MEDIA)) {
             // Media is one or two stacked lines depending on showSource (app name + title).
-            int mediaLines = prefs.media.showSource.get() ? 2 : 1;
-            h = Math.max(h, textLineHeight(binding.mediaAppText, prefs.media.fontSize.get()) * mediaLines);
+            int mediaLines = s.media.showSource ? 2 : 1;
+            h = Math.max(h, textLineHeight(s.media) * mediaLines);
         }
         if (bricks.contains(BrickType.WIFI)) {
-            h = Math.max(h, prefs.wifi.size.get());
+            h = Math.max(h, s.wifi.size);
         }
         if (bricks.contains(BrickType.GPS)) {
-            h = Math.max(h, prefs.gps.size.get());
+            h = Math.max(h, s.gps.size);
         }
         if (bricks.contains(BrickType.BLUETOOTH)) {
-            h = Math.max(h, prefs.bluetooth.size.get());
+            h = Math.max(h, s.bluetooth.size);
         }
         return h;
     }
 
-    private static int textLineHeight(OutlineTextView view, int fontSizePx) {
-        // Copy so we don't mutate the live drawing paint. The copy preserves typeface, which is
-        // crucial because Roboto Condensed Medium has different metrics from the default.
-        Paint p = new Paint(view.getPaint());
-        p.setTextSize(fontSizePx);
-        Paint.FontMetrics fm = p.getFontMetrics();
+    private int widestDateWidth(TextPaint paint, PreferencesSnapshot.DateBrick d) {
+        return clock.widestDateWidth(paint, d.showDate, d.showDayOfWeek, d.showFullName,
+                d.dateBeforeDayOfWeek, d.oneLineLayout);
+    }
+
+    private int textLineHeight(PreferencesSnapshot.TextBrick p) {
+        // The typeface matters: Roboto Condensed Medium has different metrics from the default.
+        metricsPaint.setTypeface(Fonts.resolve(this, p.fontFamily, p.fontBold, p.fontItalic));
+        metricsPaint.setTextSize(p.fontSize);
+        Paint.FontMetrics fm = metricsPaint.getFontMetrics();
         // TextView with includeFontPadding=true (default) uses top/bottom for the layout bounds.
         return (int) Math.ceil(fm.bottom - fm.top);
     }
@@ -1045,12 +1585,38 @@ public class WidgetService extends Service {
         }
     }
 
+    /**
+     * Tells the settings screen about the widget footprint, at most once per frame: dragging and
+     * re-layouts report several changes per frame, and each one re-ranges its sliders.
+     */
     private void notifyOverlayState() {
-        if (overlayStateListener == null || params == null || binding == null) return;
+        if (overlayStateListener == null || overlayStateScheduled) return;
+        overlayStateScheduled = true;
+        Choreographer.getInstance().postFrameCallback(overlayStateFrame);
+    }
+
+    private boolean overlayStateScheduled = false;
+    private final Choreographer.FrameCallback overlayStateFrame = frameTimeNanos -> {
+        overlayStateScheduled = false;
+        dispatchOverlayState();
+    };
+
+    private void dispatchOverlayState() {
+        if (overlayStateListener == null || params == null || overlayView == null) return;
+        if (splitWindows) {
+            // Same footprint as the strip: full width, as tall as the tallest group.
+            int height = 0;
+            for (View group : groupWindows) {
+                height = Math.max(height, group.getHeight());
+            }
+            overlayStateListener.onOverlayStateChanged(0, 0,
+                    getResources().getDisplayMetrics().widthPixels, height);
+            return;
+        }
         overlayStateListener.onOverlayStateChanged(
                 params.x, params.y,
-                binding.getRoot().getWidth(),
-                binding.getRoot().getHeight());
+                overlayView.getWidth(),
+                overlayView.getHeight());
     }
 
     /**
@@ -1059,19 +1625,21 @@ public class WidgetService extends Service {
      * settings affect the widget live. Skipped when the widget isn't drawn yet.
      */
     private void applyOverlayPosition() {
-        if (params == null || binding == null || windowManager == null) return;
-        boolean statusBar = prefs.widgetMode.get() == WIDGET_MODE_STATUS_BAR;
+        if (params == null || overlayView == null || windowManager == null) return;
+        PreferencesSnapshot s = snapshot();
+        boolean statusBar = s.widgetMode == WIDGET_MODE_STATUS_BAR;
         int newWidth = statusBar
                 ? WindowManager.LayoutParams.MATCH_PARENT
                 : WindowManager.LayoutParams.WRAP_CONTENT;
-        int newX = statusBar ? 0 : prefs.overlayX.get();
-        int newY = statusBar ? 0 : prefs.overlayY.get();
+        int newX = statusBar ? 0 : s.overlayX;
+        int newY = statusBar ? 0 : s.overlayY;
         if (params.x == newX && params.y == newY && params.width == newWidth) return;
         params.x = newX;
         params.y = newY;
         params.width = newWidth;
+        if (!overlayAttached || splitWindows) return;
         try {
-            windowManager.updateViewLayout(binding.getRoot(), params);
+            windowManager.updateViewLayout(overlayView, params);
         } catch (Exception ignored) {
         }
     }
@@ -1118,14 +1686,18 @@ public class WidgetService extends Service {
     }
 
     private void updateMediaInfo() {
-        if (binding == null) return;
+        markDirty(DIRTY_MEDIA);
+    }
+
+    private void applyMediaInfo() {
+        if (overlayView == null) return;
         if (!currentBrickSet().contains(BrickType.MEDIA) || isBrickHiddenByApp(BrickType.MEDIA)) {
-            binding.mediaContainer.setVisibility(View.GONE);
+            setBrickVisibility(BrickType.MEDIA, View.GONE);
             return;
         }
         MediaController playing = pickActiveMediaController();
         if (playing == null) {
-            binding.mediaContainer.setVisibility(View.GONE);
+            setBrickVisibility(BrickType.MEDIA, View.GONE);
             return;
         }
         MediaMetadata metadata = playing.getMetadata();
@@ -1149,10 +1721,14 @@ public class WidgetService extends Service {
             // placeholder so the user can see that media playback is active.
             subtitle = getString(R.string.media_unknown_track);
         }
-        binding.mediaAppText.setText(getAppLabel(playing.getPackageName()));
-        binding.mediaAppText.setVisibility(prefs.media.showSource.get() ? View.VISIBLE : View.GONE);
-        binding.mediaTitleText.setText(subtitle);
-        binding.mediaContainer.setVisibility(View.VISIBLE);
+        if (surface != null) {
+            surface.setMedia(getAppLabel(playing.getPackageName()), subtitle);
+        } else {
+            binding.mediaAppText.setText(getAppLabel(playing.getPackageName()));
+            binding.mediaAppText.setVisibility(snapshot().media.showSource ? View.VISIBLE : View.GONE);
+            binding.mediaTitleText.setText(subtitle);
+        }
+        setBrickVisibility(BrickType.MEDIA, View.VISIBLE);
     }
 
     /**
@@ -1339,6 +1915,10 @@ public class WidgetService extends Service {
     }
 
     private void updateBluetoothStatus() {
+        markDirty(DIRTY_BLUETOOTH);
+    }
+
+    private void applyBluetoothStatus() {
         BluetoothAdapter adapter = getBluetoothAdapter();
         boolean enabled;
         try {
@@ -1356,59 +1936,60 @@ public class WidgetService extends Service {
             newState = BluetoothState.CONNECTED;
         }
         bluetoothState = newState;
-        if (binding != null) {
-            updateIconStatus(ICON_TYPE_BT, binding.bluetoothStatusIcon, bluetoothState.ordinal());
+        if (overlayView != null) {
+            updateIconStatus(ICON_TYPE_BT, bluetoothState.ordinal());
         }
     }
 
+    /**
+     * Starts, switches or stops the foreground app source. The accessibility backend wins while
+     * its service is connected; otherwise usage events are polled if Usage Access is granted.
+     */
     private void updateForegroundAppTracking() {
-        boolean shouldTrack = (!hiddenInPackages.isEmpty() || anyBrickHasHideList())
-                && Permissions.isUsageAccessGranted(this);
+        boolean shouldTrack = !snapshot().hideInPackages.isEmpty() || snapshot().anyBrickHasHideList();
+        ForegroundAppSource source = null;
         if (shouldTrack) {
-            if (usageStatsManager == null) {
-                usageStatsManager = (UsageStatsManager) getSystemService(USAGE_STATS_SERVICE);
+            if (ForegroundAccessibilityService.isConnected()) {
+                source = accessibilitySource;
+            } else if (Permissions.isUsageAccessGranted(this)) {
+                source = usageStatsSource;
             }
-            mainHandler.removeCallbacks(foregroundAppCheckRunnable);
-            mainHandler.post(foregroundAppCheckRunnable);
+        }
+        if (foregroundAppSource != null && foregroundAppSource != source) {
+            foregroundAppSource.stop();
+        }
+        foregroundAppSource = source;
+        if (source != null) {
+            source.start(foregroundAppListener);
         } else {
-            mainHandler.removeCallbacks(foregroundAppCheckRunnable);
-            usageStatsManager = null;
             lastForegroundPackage = null;
-            applyOverlayVisibility(false);
+            lastForegroundClass = null;
+            applyForegroundHiding();
         }
     }
 
-    private void checkForegroundApp() {
-        if (usageStatsManager == null) {
-            return;
-        }
-        if (!Permissions.isUsageAccessGranted(this)) {
-            updateForegroundAppTracking();
-            return;
+    /** The accessibility service connected or went away: pick the foreground app source again. */
+    static void onForegroundAppSourcesChanged() {
+        if (instance != null) {
+            instance.updateForegroundAppTracking();
         }
-        long now = System.currentTimeMillis();
-        UsageEvents events = usageStatsManager.queryEvents(now - FOREGROUND_APP_LOOKBACK_MS, now);
-        UsageEvents.Event event = new UsageEvents.Event();
-        String latestPackage = lastForegroundPackage;
-        long latestTimestamp = 0;
-        while (events.getNextEvent(event)) {
-            int type = event.getEventType();
-            if (type == UsageEvents.Event.MOVE_TO_FOREGROUND
-                    || (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && type == UsageEvents.Event.ACTIVITY_RESUMED)) {
-                if (event.getTimeStamp() >= latestTimestamp) {
-                    latestTimestamp = event.getTimeStamp();
-                    latestPackage = event.getPackageName();
-                }
-            }
-        }
-        if (latestPackage == null) {
-            return;
-        }
-        boolean changed = !latestPackage.equals(lastForegroundPackage);
-        lastForegroundPackage = latestPackage;
-        applyOverlayVisibility(hiddenInPackages.contains(latestPackage));
-        if (changed && binding != null) {
-            applyBrickVisibility(currentBrickSet());
+    }
+
+    private void onForegroundAppChanged(@NonNull String packageName, @Nullable String className) {
+        lastForegroundPackage = packageName;
+        lastForegroundClass = className;
+        applyForegroundHiding();
+    }
+
+    /** One index lookup for the foreground app; only bricks whose hidden bit flipped are touched. */
+    private void applyForegroundHiding() {
+        int mask = snapshot().hideIndex().lookup(lastForegroundPackage, lastForegroundClass);
+        applyOverlayVisibility((mask & HideIndex.WIDGET) != 0);
+        int bricks = mask & HideIndex.ALL_BRICKS;
+        int changed = bricks ^ hiddenBricks;
+        hiddenBricks = bricks;
+        if (changed != 0) {
+            applyBrickVisibility(currentBrickSet(), changed);
         }
     }
 
@@ -1417,29 +1998,51 @@ public class WidgetService extends Service {
             return;
         }
         overlayHiddenByApp = hide;
-        if (binding != null) {
-            binding.getRoot().setVisibility(hide ? View.GONE : View.VISIBLE);
+        if (overlayView == null) return;
+        if (hide) {
+            // Off the screen entirely: the views detach, which stops the marquee and any pending
+            // redraws, so no outline mask is requested either.
+            detachOverlay();
+            scheduleDateTimeUpdates();
+            mainHandler.removeCallbacks(reachabilityProbeRunnable);
+            return;
         }
+        // Catch up on what was held back while hidden before the window shows again.
+        clock.setTimeZone(TimeZone.getDefault());
+        updateDateTime();
+        scheduleDateTimeUpdates();
+        if (connectivityManager != null) {
+            if (wifiState != WiFiState.OFF) {
+                probeReachability();
+            }
+            mainHandler.removeCallbacks(reachabilityProbeRunnable);
+            mainHandler.postDelayed(reachabilityProbeRunnable, INTERNET_PROBE_INTERVAL_MS);
+        }
+        if (dirtyBricks != 0) {
+            flushDirtyBricks();
+        }
+        attachOverlay();
     }
 
     private void updateBackground() {
-        if (binding == null) {
+        if (overlayView == null) {
             return;
         }
         if (themedContext == null) {
             updateThemedContext();
         }
-        int width = binding.getRoot().getWidth();
-        int height = binding.getRoot().getHeight();
+        int width = overlayView.getWidth();
+        int height = overlayView.getHeight();
         if (width == 0 || height == 0) {
             return;
         }
+        PreferencesSnapshot s = snapshot();
         int maxRadius = Math.min(width, height) / 2;
-        int backgroundCornerRadius = (prefs.widgetMode.get() == WIDGET_MODE_STATUS_BAR)
+        int backgroundCornerRadius = (s.widgetMode == WIDGET_MODE_STATUS_BAR)
                 ? 0
-                : maxRadius * prefs.backgroundCornerRadius.get() / 100;
-        int backgroundColor = ContextCompat.getColor(themedContext, R.color.widget_background) & 0x00FFFFFF | (prefs.backgroundAlpha.get() << 24);
-        binding.overlayContainer.setBackground(getBackground(backgroundColor, backgroundCornerRadius));
+                : maxRadius * s.backgroundCornerRadius / 100;
+        int backgroundColor = palette.background(s.backgroundAlpha);
+        overlayView.setBackground(getBackground(backgroundColor, backgroundCornerRadius));
     }
 
     private Drawable getBackground(int color, int cornerRadius) {
@@ -1455,54 +2058,89 @@ public class WidgetService extends Service {
     }
 
     private void updateDateTime() {
-        Set<BrickType> bricks = EnumSet.noneOf(BrickType.class);
-        bricks.addAll(BrickType.parseOrder(prefs.brickOrder.get()));
-        boolean showTime = bricks.contains(BrickType.TIME);
-        boolean dateBrickActive = bricks.contains(BrickType.DATE);
-        boolean showDate = dateBrickActive && prefs.date.showDate.get();
-        boolean showDayOfTheWeek = dateBrickActive && prefs.date.showDayOfWeek.get();
+        PreferencesSnapshot s = snapshot();
+        boolean showTime = s.bricks.contains(BrickType.TIME);
+        boolean dateBrickActive = s.bricks.contains(BrickType.DATE);
+        boolean showDate = dateBrickActive && s.date.showDate;
+        boolean showDayOfTheWeek = dateBrickActive && s.date.showDayOfWeek;
 
         if (!showTime && !showDate && !showDayOfTheWeek) {
             return;
         }
 
-        boolean showFullDayAndMonth = prefs.date.showFullName.get();
-
-        String divider = (showDate && showDayOfTheWeek) ? (prefs.date.oneLineLayout.get() ? "," : " \n") : "";
-        String dayOfTheWeekFormatStr = showFullDayAndMonth ? "EEEE" : "EEE";
-        String dateFormatStr = showFullDayAndMonth ? "d MMMM" : "d MMM";
-
-        // We add spaces at the start/end to avoid outline cropping by canvas which is not ready for the outline
-        String dayPart = showDayOfTheWeek ? " " + dayOfTheWeekFormatStr : "";
-        String datePart = showDate ? " " + dateFormatStr : "";
-        String fullFormatStr = prefs.date.dateBeforeDayOfWeek.get()
-                ? datePart + (showDate && showDayOfTheWeek ? divider : "") + dayPart + " "
-                : dayPart + (showDate && showDayOfTheWeek ? divider : "") + datePart + " ";
-
-        if (!fullFormatStr.equals(currentDateFormatPattern)) {
-            dateFormat = new SimpleDateFormat(fullFormatStr, Locale.getDefault());
-            currentDateFormatPattern = fullFormatStr;
-        }
-
-        Date now = new Date();
-        if (showTime) {
-            String timeStr = timeFormat.format(now);
-            if (!timeStr.contentEquals(binding.timeText.getText())) {
-                binding.timeText.setText(timeStr);
+        long now = System.currentTimeMillis();
+        if (showTime && clock.formatTime(now, s.time.showSeconds)) {
+            char[] chars = clock.timeChars();
+            int length = clock.timeLength();
+            if (surface != null) {
+                surface.setText(BrickType.TIME, chars, length);
+            } else {
+                // TextView wraps the buffer in its reused CharWrapper without copying. That's safe:
+                // the buffer is only rewritten by formatTime, and every change lands here.
+                binding.timeText.setText(chars, 0, length);
             }
         }
         if (showDate || showDayOfTheWeek) {
-            String dateStr = dateFormat.format(now);
-            if (!dateStr.contentEquals(binding.dateText.getText())) {
+            // A leading/trailing space keeps the outline from being cropped by the canvas.
+            String dateStr = clock.formatDate(now, showDate, showDayOfTheWeek, s.date.showFullName,
+                    s.date.dateBeforeDayOfWeek, s.date.oneLineLayout);
+            if (surface != null) {
+                surface.setText(BrickType.DATE, dateStr);
+            } else if (!dateStr.contentEquals(binding.dateText.getText())) {
                 binding.dateText.setText(dateStr);
             }
         }
     }
 
+    private void scheduleDateTimeUpdates() {
+        PreferencesSnapshot s = snapshot();
+        boolean clockShown = !overlayHiddenByApp
+                && (s.bricks.contains(BrickType.TIME) || s.bricks.contains(BrickType.DATE));
+        if (clockShown) {
+            registerTimeTickReceiver();
+        } else {
+            unregisterTimeTickReceiver();
+        }
+        boolean seconds = clockShown && s.bricks.contains(BrickType.TIME) && s.time.showSeconds;
+        if (seconds && !secondsTickScheduled) {
+            postSecondsTick();
+        } else if (!seconds && secondsTickScheduled) {
+            Choreographer.getInstance().removeFrameCallback(secondsTick);
+            secondsTickScheduled = false;
+        }
+    }
+
+    private void postSecondsTick() {
+        long delay = SECONDS_UPDATE_INTERVAL_MS - (System.currentTimeMillis() % SECONDS_UPDATE_INTERVAL_MS);
+        Choreographer.getInstance().postFrameCallbackDelayed(secondsTick, delay);
+        secondsTickScheduled = true;
+    }
+
+    private void registerTimeTickReceiver() {
+        if (timeTickReceiverRegistered) return;
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_TIME_TICK);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        registerReceiver(timeTickReceiver, filter);
+        timeTickReceiverRegistered = true;
+    }
+
+    private void unregisterTimeTickReceiver() {
+        if (!timeTickReceiverRegistered) return;
+        try {
+            unregisterReceiver(timeTickReceiver);
+        } catch (IllegalArgumentException ignored) {
+        }
+        timeTickReceiverRegistered = false;
+    }
+
     @SuppressLint("ClickableViewAccessibility")
     private void setupDragListener() {
-        binding.getRoot().setOnTouchListener((v, event) -> {
-            WindowManager.LayoutParams params = (WindowManager.LayoutParams) binding.getRoot().getLayoutParams();
+        View.OnTouchListener listener = (v, event) -> {
+            // The touched window: the overlay itself, or one of the split group windows.
+            WindowManager.LayoutParams params = (WindowManager.LayoutParams) v.getLayoutParams();
 
             switch (event.getAction()) {
                 case MotionEvent.ACTION_DOWN:
@@ -1513,33 +2151,40 @@ public class WidgetService extends Service {
                     return true;
 
                 case MotionEvent.ACTION_MOVE:
-                    if (prefs.widgetMode.get() == WIDGET_MODE_STATUS_BAR) {
+                    if (snapshot().widgetMode == WIDGET_MODE_STATUS_BAR) {
                         // Pinned to (0, 0) full-width — drag is disabled, but consume the event so
                         // ACTION_UP still arrives for click handling.
                         return true;
                     }
-                    params.x = initialX + (int) (event.getRawX() - initialTouchX);
-                    params.y = initialY + (int) (event.getRawY() - initialTouchY);
-                    windowManager.updateViewLayout(binding.getRoot(), params);
-                    notifyOverlayState();
+                    dragX = initialX + (int) (event.getRawX() - initialTouchX);
+                    dragY = initialY + (int) (event.getRawY() - initialTouchY);
+                    if (!dragFrameScheduled) {
+                        dragFrameScheduled = true;
+                        Choreographer.getInstance().postFrameCallback(dragFrame);
+                    }
                     return true;
 
                 case MotionEvent.ACTION_UP:
-                    if (prefs.widgetMode.get() != WIDGET_MODE_STATUS_BAR) {
+                    if (snapshot().widgetMode != WIDGET_MODE_STATUS_BAR) {
+                        if (dragFrameScheduled) {
+                            // Land where the finger was lifted, not one frame behind.
+                            Choreographer.getInstance().removeFrameCallback(dragFrame);
+                            dragFrameScheduled = false;
+                            moveOverlayTo(dragX, dragY);
+                        }
+                        snapPosition();
                         savePosition();
                     }
 
                     // Handle click
                     if (Math.abs(event.getRawX() - initialTouchX) < touchSlop && Math.abs(event.getRawY() - initialTouchY) < touchSlop) {
-                        if (binding.wifiStatusIcon.getVisibility() == View.VISIBLE &&
-                                getBounds(binding.wifiStatusIcon).contains((int) event.getX(), (int) event.getY())) {
+                        if (isBrickTapped(BrickType.WIFI, v, event)) {
                             Intent intent = new Intent(Settings.ACTION_WIFI_SETTINGS);
                             intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
                             safeStartActivity(intent);
                             return true;
                         }
-                        if (binding.gnssStatusIcon.getVisibility() == View.VISIBLE &&
-                                getBounds(binding.gnssStatusIcon).contains((int) event.getX(), (int) event.getY())) {
+                        if (isBrickTapped(BrickType.GPS, v, event)) {
                             Intent intent = getPackageManager().getLaunchIntentForPackage(GNSSSHARE_CLIENT_PACKAGE);
                             if (intent == null) {
                                 intent = new Intent(Settings.ACTION_LOCATION_SOURCE_SETTINGS);
@@ -1554,7 +2199,38 @@ public class WidgetService extends Service {
                     return true;
             }
             return false;
-        });
+        };
+        overlayView.setOnTouchListener(listener);
+        if (splitWindows) {
+            for (View group : groupWindows) {
+                group.setOnTouchListener(listener);
+            }
+        }
+    }
+
+    /** Whether {@code event}, in {@code window} coordinates, hits the visible brick {@code type}. */
+    private boolean isBrickTapped(BrickType type, View window, MotionEvent event) {
+        Rect bounds;
+        if (surface != null) {
+            if (surface.getBrickVisibility(type) != View.VISIBLE) return false;
+            bounds = surface.getBrickBounds(type);
+        } else {
+            View view = viewForBrick(type);
+            if (view == null || view.getVisibility() != View.VISIBLE || !isDescendant(window, view)) {
+                return false;
+            }
+            // Bricks sit in a group in status-bar mode: map through it into window coordinates.
+            bounds = new Rect(0, 0, view.getWidth(), view.getHeight());
+            ((ViewGroup) window).offsetDescendantRectToMyCoords(view, bounds);
+        }
+        return bounds.contains((int) event.getX(), (int) event.getY());
+    }
+
+    private static boolean isDescendant(View ancestor, View view) {
+        for (ViewParent p = view.getParent(); p != null; p = p.getParent()) {
+            if (p == ancestor) return true;
+        }
+        return false;
     }
 
     private void startMainActivity() {
@@ -1585,7 +2261,33 @@ public class WidgetService extends Service {
     }
 
     private void updateWifiStatus() {
-        updateIconStatus(ICON_TYPE_WIFI, binding.wifiStatusIcon, wifiState.ordinal());
+        markDirty(DIRTY_WIFI);
+    }
+
+    /**
+     * Re-arms the two one-shot transitions: BAD and then OFF, counted from the last location
+     * fix. Each fix pushes both out again, so nothing runs while fixes keep coming. Without any
+     * fix yet both are already due.
+     */
+    private void scheduleGnssDeadlines() {
+        mainHandler.removeCallbacks(gnssBadDeadline);
+        mainHandler.removeCallbacks(gnssOffDeadline);
+        PreferencesSnapshot.GpsBrick gps = snapshot().gps;
+        long badAfter = gps.badAfterSeconds * 1000L;
+        long offAfter = Math.max(badAfter, gps.offAfterSeconds * 1000L);
+        long sinceFix = lastLocationUpdateTime == 0
+                ? Long.MAX_VALUE / 2
+                : SystemClock.elapsedRealtime() - lastLocationUpdateTime;
+        if (sinceFix >= offAfter) {
+            setGnssStatus(GnssState.OFF);
+            return;
+        }
+        if (sinceFix < badAfter) {
+            mainHandler.postDelayed(gnssBadDeadline, badAfter - sinceFix);
+        } else if (gnssState == GnssState.GOOD) {
+            setGnssStatus(GnssState.BAD);
+        }
+        mainHandler.postDelayed(gnssOffDeadline, offAfter - sinceFix);
     }
 
     private void setGnssStatus(GnssState newState) {
@@ -1597,97 +2299,126 @@ public class WidgetService extends Service {
     }
 
     private void updateGnssStatus() {
-        updateIconStatus(ICON_TYPE_GNSS, binding.gnssStatusIcon, gnssState.ordinal());
+        markDirty(DIRTY_GNSS);
+    }
+
+    /**
+     * Records that a brick needs refreshing and schedules one flush on the next frame. Network,
+     * location, Bluetooth and media callbacks often fire in bursts for a single event, and
+     * {@link #applyPreferences()} touches every brick several times; this way each brick's
+     * drawable, tint, badge and text are applied at most once per vsync. While the overlay is
+     * hidden the flags just accumulate, and the flush runs once it is shown again.
+     */
+    private void markDirty(int bricks) {
+        dirtyBricks |= bricks;
+        if (!flushScheduled && !overlayHiddenByApp) {
+            flushScheduled = true;
+            Choreographer.getInstance().postFrameCallback(flushDirtyBricks);
+        }
     }
 
-    private void updateIconStatus(int iconType, OutlineImageView icon, int state) {
-        int designIdx = Math.min(Math.max(0, prefs.iconDesign.get()), ICON_DESIGNS.length - 1);
+    private void flushDirtyBricks() {
+        flushScheduled = false;
+        int dirty = dirtyBricks;
+        dirtyBricks = 0;
+        if (overlayView == null) return;
+        if ((dirty & DIRTY_WIFI) != 0) {
+            updateIconStatus(ICON_TYPE_WIFI, wifiState.ordinal());
+        }
+        if ((dirty & DIRTY_GNSS) != 0) {
+            updateIconStatus(ICON_TYPE_GNSS, gnssState.ordinal());
+        }
+        if ((dirty & DIRTY_BLUETOOTH) != 0) {
+            applyBluetoothStatus();
+        }
+        if ((dirty & DIRTY_MEDIA) != 0) {
+            applyMediaInfo();
+        }
+    }
+
+    private void updateIconStatus(int iconType, int state) {
+        if (overlayView == null) return;
+        PreferencesSnapshot s = snapshot();
+        int designIdx = Math.min(Math.max(0, s.iconDesign), ICON_DESIGNS.length - 1);
         int[][] design = ICON_DESIGNS[designIdx];
         int stateIdx = Math.min(Math.max(0, state), design[iconType].length - 1);
-        icon.setImageResource(design[iconType][stateIdx]);
-        icon.setDrawIcon(true);
+        int resId = design[iconType][stateIdx];
 
-        int iconStyle = Math.min(Math.max(0, prefs.iconStyle.get()), 1);
-        int[] colorRes;
-        Preferences.IconBrickPrefs iconPrefs;
+        int iconStyle = Math.min(Math.max(0, s.iconStyle), 1);
+        int stateColor;
+        PreferencesSnapshot.IconBrick iconPrefs;
+        BrickType brick;
         switch (iconType) {
             case ICON_TYPE_GNSS:
-                colorRes = GNSS_STATE_COLOR_RES;
-                iconPrefs = prefs.gps;
+                stateColor = palette.gnssState(stateIdx);
+                iconPrefs = s.gps;
+                brick = BrickType.GPS;
                 break;
             case ICON_TYPE_BT:
-                colorRes = BT_STATE_COLOR_RES;
-                iconPrefs = prefs.bluetooth;
+                stateColor = palette.bluetoothState(stateIdx);
+                iconPrefs = s.bluetooth;
+                brick = BrickType.BLUETOOTH;
                 break;
             case ICON_TYPE_WIFI:
             default:
-                colorRes = WIFI_STATE_COLOR_RES;
-                iconPrefs = prefs.wifi;
+                stateColor = palette.wifiState(stateIdx);
+                iconPrefs = s.wifi;
+                brick = BrickType.WIFI;
                 break;
         }
-        int tint = (iconStyle == STYLE_COLOR)
-                ? ContextCompat.getColor(themedContext, colorRes[stateIdx])
-                : ContextCompat.getColor(themedContext, R.color.text_primary);
-        ImageViewCompat.setImageTintList(icon, ColorStateList.valueOf(tint));
+        int tint = (iconStyle == STYLE_COLOR) ? stateColor : palette.textPrimary;
 
-        int outlineAlpha = iconPrefs.outlineAlpha.get();
-        if (outlineAlpha > 0) {
-            int haloColor = (ContextCompat.getColor(themedContext, R.color.text_outline) & 0x00FFFFFF)
-                    | (outlineAlpha << 24);
-            icon.setOutlineColor(haloColor);
-            icon.setOutlineWidth(iconPrefs.outlineWidth.get());
-        } else {
-            icon.setOutlineWidth(0);
-        }
+        int outlineAlpha = iconPrefs.outlineAlpha;
+        int haloColor = palette.outline(outlineAlpha);
+        int haloWidth = outlineAlpha > 0 ? iconPrefs.outlineWidth : 0;
 
         // Whitelist (Russian-only internet) — overlay a small flag badge regardless of style.
+        Drawable badge = null;
         if (iconType == ICON_TYPE_WIFI && stateIdx == WiFiState.LIMITED_INTERNET.ordinal()) {
-            Drawable flag = ContextCompat.getDrawable(this, R.drawable.ic_badge_ru_flag);
-            // mutate() ensures setBounds() doesn't affect a shared cached instance.
-            icon.setBadgeDrawable(flag != null ? flag.mutate() : null);
-        } else {
-            icon.setBadgeDrawable(null);
+            if (whitelistBadge == null) {
+                Drawable flag = ContextCompat.getDrawable(this, R.drawable.ic_badge_ru_flag);
+                // mutate() ensures setBounds() doesn't affect a shared cached instance.
+                whitelistBadge = flag != null ? flag.mutate() : null;
+            }
+            badge = whitelistBadge;
         }
 
-        // Text badge: GNSS Share satellite count for GPS, connected-device count for Bluetooth.
+        // Text badge: satellite count for GPS, connected-device count for Bluetooth.
         String badgeText = null;
-        if (iconType == ICON_TYPE_GNSS && prefs.gps.showSatelliteBadge.get() && satellitesCount > 0
-                && System.currentTimeMillis() - satellitesCountTimestamp < GNSSSHARE_SATELLITE_STATUS_TIMEOUT_MS) {
-            badgeText = String.valueOf(satellitesCount);
-        } else if (iconType == ICON_TYPE_BT && prefs.bluetooth.showDeviceCountBadge.get()
+        if (iconType == ICON_TYPE_GNSS) {
+            shownSatellitesCount = s.gps.showSatelliteBadge ? satellitesBadgeCount() : 0;
+            if (shownSatellitesCount > 0) {
+                badgeText = String.valueOf(shownSatellitesCount);
+            }
+        } else if (iconType == ICON_TYPE_BT && s.bluetooth.showDeviceCountBadge
                 && bluetoothState == BluetoothState.CONNECTED && !btConnectedAddrs.isEmpty()) {
             badgeText = String.valueOf(btConnectedAddrs.size());
         }
+        int badgeBgColor = 0;
+        int badgeFgColor = 0;
         if (badgeText != null) {
-            int bgColor = (iconStyle == STYLE_COLOR)
-                    ? ContextCompat.getColor(themedContext, colorRes[stateIdx])
-                    : ContextCompat.getColor(themedContext, R.color.text_primary);
-            int fgColor = ContextCompat.getColor(themedContext, R.color.text_outline) | 0xFF000000;
-            icon.setBadgeText(badgeText, bgColor, fgColor);
-        } else {
-            icon.setBadgeText(null, 0, 0);
+            badgeBgColor = tint;
+            badgeFgColor = palette.outlineOpaque;
         }
-    }
 
-    // Wi-Fi state colours by ordinal (OFF, NO_INTERNET, LIMITED_INTERNET, INTERNET).
-    private static final int[] WIFI_STATE_COLOR_RES = {
-            R.color.status_off,
-            R.color.status_error,
-            R.color.status_warning,
-            R.color.status_ok
-    };
-    // GNSS state colours by ordinal (OFF, BAD, GOOD).
-    private static final int[] GNSS_STATE_COLOR_RES = {
-            R.color.status_off,
-            R.color.status_warning,
-            R.color.status_ok
-    };
-    // Bluetooth state colours by ordinal (OFF, NO_DEVICE, CONNECTED).
-    private static final int[] BT_STATE_COLOR_RES = {
-            R.color.status_off,
-            R.color.status_off,
-            R.color.status_bluetooth
-    };
+        if (surface != null) {
+            surface.setIcon(brick, resId, tint);
+            surface.setIconOutline(brick, haloColor, haloWidth);
+            surface.setIconBadge(brick, badge, badgeText, badgeBgColor, badgeFgColor);
+            return;
+        }
+
+        OutlineImageView icon = (OutlineImageView) viewForBrick(brick);
+        icon.setImageResource(resId);
+        icon.setDrawIcon(true);
+        ImageViewCompat.setImageTintList(icon, ColorStateList.valueOf(tint));
+        if (haloWidth > 0) {
+            icon.setOutlineColor(haloColor);
+        }
+        icon.setOutlineWidth(haloWidth);
+        icon.setBadgeDrawable(badge);
+        icon.setBadgeText(badgeText, badgeBgColor, badgeFgColor);
+    }
 
     private void createNotificationChannel() {
         NotificationChannel serviceChannel = new NotificationChannel(CHANNEL_ID, getString(R.string.notification_channel_title), NotificationManager.IMPORTANCE_LOW);
@@ -1704,6 +2435,52 @@ public class WidgetService extends Service {
         return new NotificationCompat.Builder(this, CHANNEL_ID).setContentTitle(getString(R.string.app_name)).setContentText(getString(R.string.notification_content)).setSmallIcon(R.drawable.ic_status_gps_good).setContentIntent(pendingIntent).setOngoing(true).build();
     }
 
+    private void moveOverlayTo(int x, int y) {
+        if (params == null || (params.x == x && params.y == y)) return;
+        params.x = x;
+        params.y = y;
+        if (overlayAttached) {
+            try {
+                windowManager.updateViewLayout(overlayView, params);
+            } catch (Exception ignored) {
+            }
+        }
+        notifyOverlayState();
+    }
+
+    /**
+     * Drag release: sticks the widget to a screen edge it was dropped close to, otherwise rounds
+     * the position to the snap grid. Computed once here so moves during the drag stay cheap.
+     */
+    private void snapPosition() {
+        if (params == null || overlayView == null) return;
+        PreferencesSnapshot s = snapshot();
+        int x = params.x;
+        int y = params.y;
+        if (s.dragSnapGrid > 0) {
+            x = Math.round((float) x / s.dragSnapGrid) * s.dragSnapGrid;
+            y = Math.round((float) y / s.dragSnapGrid) * s.dragSnapGrid;
+        }
+        if (s.dragSnapEdges) {
+            DisplayMetrics dm = getResources().getDisplayMetrics();
+            int reach = Math.round(SNAP_EDGE_DISTANCE_DP * dm.density);
+            int right = dm.widthPixels - overlayView.getWidth();
+            int bottom = dm.heightPixels - overlayView.getHeight();
+            // Judged on the dropped position, so the grid can't pull a drop out of reach.
+            if (Math.abs(params.x) <= reach) {
+                x = 0;
+            } else if (Math.abs(params.x - right) <= reach) {
+                x = right;
+            }
+            if (Math.abs(params.y) <= reach) {
+                y = 0;
+            } else if (Math.abs(params.y - bottom) <= reach) {
+                y = bottom;
+            }
+        }
+        moveOverlayTo(x, y);
+    }
+
     private void savePosition() {
         if (params != null) {
             prefs.overlayX.set(params.x);
@@ -1711,19 +2488,40 @@ public class WidgetService extends Service {
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        Log.d(TAG, "Trim memory level " + level + ", outline masks: "
+                + OutlineMaskCache.hitCount() + " hits, " + OutlineMaskCache.missCount() + " misses, "
+                + OutlineMaskCache.sizeBytes() + " bytes");
+        // The masks on screen are still referenced by their views; only the spare states go.
+        // UI_HIDDEN is about the settings screen and says nothing about the overlay.
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            OutlineMaskCache.clear();
+        }
+    }
 
     @Override
     public void onDestroy() {
         instance = null;
+        if (prefs != null) {
+            prefs.unregisterChangeListener(prefsChangeListener);
+        }
 
-        mainHandler.removeCallbacks(updateGnssStatusRunnable);
-        mainHandler.removeCallbacks(updateDateTimeRunnable);
-        mainHandler.removeCallbacks(foregroundAppCheckRunnable);
+        mainHandler.removeCallbacks(gnssBadDeadline);
+        mainHandler.removeCallbacks(gnssOffDeadline);
+        if (foregroundAppSource != null) {
+            foregroundAppSource.stop();
+            foregroundAppSource = null;
+        }
         mainHandler.removeCallbacks(reachabilityProbeRunnable);
+        Fonts.removeLoadListener(fontsLoadedListener);
+        Choreographer.getInstance().removeFrameCallback(flushDirtyBricks);
+        Choreographer.getInstance().removeFrameCallback(secondsTick);
+        Choreographer.getInstance().removeFrameCallback(dragFrame);
+        Choreographer.getInstance().removeFrameCallback(overlayStateFrame);
 
-        if (binding != null && windowManager != null) {
-            windowManager.removeView(binding.getRoot());
-        }
+        detachOverlay();
 
         if (locationManager != null) {
             locationManager.unregisterGnssStatusCallback(gnssStatusCallback);
@@ -1741,6 +2539,7 @@ public class WidgetService extends Service {
 
         unregisterSatelliteStatusReceiver();
         unregisterBluetoothReceiver();
+        unregisterTimeTickReceiver();
         disableMediaTracking();
     }
 
@@ -1757,8 +2556,4 @@ public class WidgetService extends Service {
     public static boolean isRunning() {
         return instance != null;
     }
-
-    private static Rect getBounds(View view) {
-        return new Rect(view.getLeft(), view.getTop(), view.getRight(), view.getBottom());
-    }
 }
@@ -140,6 +140,7 @@ public class PrivilegedShell {
         BACKGROUND_LOCATION,
         USAGE_ACCESS,
         NOTIFICATION,
+        ACCESSIBILITY,
     }
 
     /** Result of an {@link #ensurePrivileges} call. */
@@ -190,6 +191,8 @@ public class PrivilegedShell {
         final boolean usageAccess;
         final boolean notificationListener;
         @Nullable final String notificationListenerComponent;
+        final boolean accessibilityService;
+        @Nullable final String accessibilityServiceComponent;
 
         private Request(Builder b) {
             this.packageName = b.packageName;
@@ -199,11 +202,13 @@ public class PrivilegedShell {
             this.usageAccess = b.usageAccess;
             this.notificationListener = b.notificationListener;
             this.notificationListenerComponent = b.notificationListenerComponent;
+            this.accessibilityService = b.accessibilityService;
+            this.accessibilityServiceComponent = b.accessibilityServiceComponent;
         }
 
         boolean nothingToDo() {
             return !overlay && !foregroundLocation && !backgroundLocation
-                    && !usageAccess && !notificationListener;
+                    && !usageAccess && !notificationListener && !accessibilityService;
         }
 
         public static Builder forPackage(String packageName) { return new Builder(packageName); }
@@ -216,6 +221,8 @@ public class PrivilegedShell {
             private boolean usageAccess = false;
             private boolean notificationListener = false;
             @Nullable private String notificationListenerComponent = null;
+            private boolean accessibilityService = false;
+            @Nullable private String accessibilityServiceComponent = null;
 
             Builder(String packageName) { this.packageName = packageName; }
 
@@ -228,6 +235,11 @@ public class PrivilegedShell {
                 this.notificationListenerComponent = component;
                 return this;
             }
+            public Builder withAccessibilityService(String component) {
+                this.accessibilityService = true;
+                this.accessibilityServiceComponent = component;
+                return this;
+            }
             public Request build() { return new Request(this); }
         }
     }
@@ -544,6 +556,28 @@ public class PrivilegedShell {
                         PermissionKind.NOTIFICATION,
                         granted, failed);
             }
+            if (request.accessibilityService && request.accessibilityServiceComponent != null
+                    && !Permissions.isAccessibilityServiceEnabled(appContext)) {
+                // The setting is a colon-separated list shared with other services, so append
+                // to what's there instead of overwriting it — and give up if it can't be read.
+                String enabled = readSecureSetting(transport, "enabled_accessibility_services");
+                if (enabled == null) {
+                    failed.add(PermissionKind.ACCESSIBILITY);
+                } else {
+                    String value = enabled.isEmpty()
+                            ? request.accessibilityServiceComponent
+                            : enabled + ":" + request.accessibilityServiceComponent;
+                    applyPermission(transport,
+                            new String[]{
+                                    "settings put secure enabled_accessibility_services "
+                                            + shellQuote(value),
+                                    "settings put secure accessibility_enabled 1"
+                            },
+                            () -> Permissions.isAccessibilityServiceEnabled(appContext),
+                            PermissionKind.ACCESSIBILITY,
+                            granted, failed);
+                }
+            }
         } catch (Exception e) {
             Log.w(TAG, "Failed to open transport for grant flow", e);
             // Caller treats transportAvailable=false as "fall back to the manual route".
@@ -603,6 +637,19 @@ public class PrivilegedShell {
         }
     }
 
+    /** Current value of a secure setting: {@code ""} when unset, null if the read failed. */
+    @Nullable
+    private static String readSecureSetting(ShellTransport transport, String name) {
+        try {
+            String output = transport.exec("settings get secure " + name);
+            String value = output == null ? "" : output.trim();
+            return "null".equals(value) ? "" : value;
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to read secure setting " + name, e);
+            return null;
+        }
+    }
+
     @FunctionalInterface
     private interface PermissionCheck {
         boolean isGranted();
@@ -620,9 +667,15 @@ public class PrivilegedShell {
 
     /**
      * Convenience: format the {@code <pkg>/<service-class>} component for the
-     * {@code cmd notification allow_listener} argument.
+     * {@code cmd notification allow_listener} argument and the
+     * {@code enabled_accessibility_services} secure setting.
      */
-    public static String notificationListenerComponent(String packageName, Class<?> serviceClass) {
+    public static String serviceComponent(String packageName, Class<?> serviceClass) {
         return packageName + "/" + serviceClass.getName();
     }
+
+    /** Single-quote {@code value} as one shell word, so list separators and the like pass as-is. */
+    private static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mask generation cost at the icon box sizes the widget actually uses. Run with
+ * {@code ./gradlew :app:benchmarkOutlines}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceTransformBenchmark {
+    @Param({"70", "150", "300"})
+    public int size;
+
+    private int[] argb;
+    private byte[] out;
+    private int radius;
+
+    @Setup
+    public void setUp() {
+        // A ring with a bar through it: thin strokes and enclosed holes, like a status icon.
+        argb = new int[size * size];
+        float c = size / 2F;
+        float outerR = size * 0.4F;
+        float innerR = size * 0.3F;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                float dx = x - c;
+                float dy = y - c;
+                float r = (float) Math.sqrt(dx * dx + dy * dy);
+                boolean ring = r <= outerR && r >= innerR;
+                boolean bar = Math.abs(dy) < size * 0.05F && Math.abs(dx) < outerR;
+                argb[y * size + x] = ring || bar ? 0xFFFFFFFF : 0;
+            }
+        }
+        out = new byte[size * size];
+        radius = Math.max(1, size / 20);
+    }
+
+    @Benchmark
+    public byte[] outlineMask() {
+        DistanceTransform.outlineMask(argb, size, size, radius, out, size);
+        return out;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DistanceTransformBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2025-2026 Dezz (https://github.com/DezzK)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dezz.status.widget;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/** {@link DistanceTransform} against a brute-force nearest-pixel search. */
+public class DistanceTransformTest {
+
+    @Test
+    public void squaredDistancesMatchBruteForce() {
+        Random random = new Random(1);
+        int[][] sizes = {{1, 1}, {1, 17}, {23, 1}, {2, 2}, {16, 16}, {37, 21}, {21, 37}, {48, 48}};
+        for (int[] size : sizes) {
+            for (float density : new float[] {0.002F, 0.05F, 0.3F, 0.9F}) {
+                int w = size[0];
+                int h = size[1];
+                boolean[] shape = randomShape(random, w, h, density);
+                float[] d = new float[w * h];
+                for (int i = 0; i < d.length; i++) {
+                    d[i] = shape[i] ? 0F : DistanceTransform.FAR;
+                }
+                DistanceTransform.squaredDistances(d, w, h);
+                int[] expected = bruteForce(shape, w, h);
+                for (int i = 0; i < d.length; i++) {
+                    if (expected[i] < 0) continue;
+                    assertEquals(w + "x" + h + " density " + density + " pixel " + i,
+                            expected[i], d[i], 0F);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyShapeStaysFar() {
+        float[] d = new float[12 * 9];
+        java.util.Arrays.fill(d, DistanceTransform.FAR);
+        DistanceTransform.squaredDistances(d, 12, 9);
+        for (float v : d) {
+            assertEquals(true, v >= DistanceTransform.FAR);
+        }
+    }
+
+    @Test
+    public void outlineMaskMatchesBruteForceCoverage() {
+        Random random = new Random(2);
+        int w = 40;
+        int h = 31;
+        int rowStride = 44;
+        for (int radius = 0; radius <= 6; radius++) {
+            boolean[] shape = randomShape(random, w, h, 0.01F);
+            int[] argb = new int[w * h];
+            for (int i = 0; i < argb.length; i++) {
+                // Half-opaque is the threshold: 0x80 counts as shape, 0x7F doesn't.
+                argb[i] = shape[i] ? 0x80FFFFFF : 0x7FFFFFFF;
+            }
+            byte[] out = new byte[rowStride * h];
+            DistanceTransform.outlineMask(argb, w, h, radius, out, rowStride);
+            int[] d2 = bruteForce(shape, w, h);
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    int expected = coverage(d2[y * w + x], radius);
+                    assertEquals("radius " + radius + " at " + x + "," + y,
+                            expected, out[y * rowStride + x] & 0xFF);
+                }
+            }
+        }
+    }
+
+    private static boolean[] randomShape(Random random, int w, int h, float density) {
+        boolean[] shape = new boolean[w * h];
+        boolean any = false;
+        for (int i = 0; i < shape.length; i++) {
+            shape[i] = random.nextFloat() < density;
+            any |= shape[i];
+        }
+        if (!any) {
+            shape[random.nextInt(shape.length)] = true;
+        }
+        return shape;
+    }
+
+    /** Squared distance to the nearest shape pixel, or {@code -1} if there is none. */
+    private static int[] bruteForce(boolean[] shape, int w, int h) {
+        int[] result = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int best = -1;
+                for (int sy = 0; sy < h; sy++) {
+                    for (int sx = 0; sx < w; sx++) {
+                        if (!shape[sy * w + sx]) continue;
+                        int d = (sx - x) * (sx - x) + (sy - y) * (sy - y);
+                        if (best < 0 || d < best) best = d;
+                    }
+                }
+                result[y * w + x] = best;
+            }
+        }
+        return result;
+    }
+
+    private static int coverage(int d2, int radius) {
+        if (d2 < 0) return 0;
+        if (d2 <= radius * radius) return 0xFF;
+        if (d2 >= (radius + 1) * (radius + 1)) return 0;
+        return (int) ((radius + 1F - (float) Math.sqrt(d2)) * 0xFF);
+    }
+}